@@ -8,13 +8,9 @@ public class Application {
 
 	public static void main(String[] args) {
 		// entry point required by Spring Boot
-		// Needed for the existing project structure
-		// No web endpoints are implemented for the assessment but could be added later
-		// for a real service.
+		// Serves the HTTP API in the web package, which delegates to
+		// CarRentalService
 		SpringApplication.run(Application.class, args);
 	}
 
 }
-
-// NOTE: REST layer is out of scope for this assignment
-// If added, controllers would use CarRentalService in the background.
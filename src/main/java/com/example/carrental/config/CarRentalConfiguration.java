@@ -0,0 +1,77 @@
+package com.example.carrental.config;
+
+import com.example.carrental.persistence.ReservationJournal;
+import com.example.carrental.service.CarRentalService;
+import com.example.carrental.service.OccupancyHorizonRoller;
+import com.example.carrental.service.ReservationArchiver;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Wires the framework-free CarRentalService into the Spring context.
+ * When {@code carrental.journal-directory} is set, reservations are
+ * journaled there and recovered on startup. When
+ * {@code carrental.archive-interval} is set, ended reservations are
+ * archived on that schedule. When {@code carrental.occupancy-horizon-days}
+ * is set, whole-day availability is answered from occupancy bitmaps whose
+ * horizon rolls forward every midnight. When the application runs on
+ * virtual threads, so does waitlist matching. Service metrics are
+ * published to the actuator through {@link CarRentalMetricsBinder}.
+ */
+@Configuration
+@EnableConfigurationProperties(CarRentalProperties.class)
+public class CarRentalConfiguration {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "carrental", name = "journal-directory")
+    public ReservationJournal reservationJournal(CarRentalProperties properties) throws IOException {
+        return ReservationJournal.open(properties.getJournalDirectory(), properties.getSnapshotInterval());
+    }
+
+    @Bean
+    public CarRentalService carRentalService(CarRentalProperties properties,
+            ObjectProvider<ReservationJournal> journal,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        CarRentalService service = new CarRentalService(properties.getInventory(), journal.getIfAvailable(),
+                properties.getAllocationStrategy());
+        if (properties.getParallelThreshold() != null) {
+            service.setParallelEvaluation(properties.getParallelThreshold(), ForkJoinPool.commonPool());
+        }
+        if (properties.getEventStreamCapacity() != null) {
+            service.enableEventStream(properties.getEventStreamCapacity());
+        }
+        if (virtualThreads) {
+            service.setWaitlistExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        return service;
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "carrental", name = "archive-interval")
+    public ReservationArchiver reservationArchiver(CarRentalService carRentalService,
+            CarRentalProperties properties) {
+        return new ReservationArchiver(carRentalService, properties.getArchiveInterval(), Clock.systemDefaultZone());
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "carrental", name = "occupancy-horizon-days")
+    public OccupancyHorizonRoller occupancyHorizonRoller(CarRentalService carRentalService,
+            CarRentalProperties properties) {
+        return new OccupancyHorizonRoller(carRentalService, properties.getOccupancyHorizonDays(),
+                Clock.systemDefaultZone());
+    }
+
+    @Bean
+    public CarRentalMetricsBinder carRentalMetricsBinder(CarRentalService carRentalService) {
+        return new CarRentalMetricsBinder(carRentalService.getMetrics());
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.carrental.config;
+
+import com.example.carrental.domain.CarType;
+import com.example.carrental.metrics.LogHistogram;
+import com.example.carrental.metrics.ServiceMetrics;
+import com.example.carrental.metrics.ServiceMetrics.Operation;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the service's hot-path metrics to Micrometer, and through it to
+ * the actuator {@code /actuator/metrics} endpoint.
+ *
+ * Every meter is a function meter reading the service's own striped
+ * counters when scraped, so nothing is recorded twice and the booking path
+ * never touches the meter registry.
+ */
+public class CarRentalMetricsBinder implements MeterBinder {
+
+    private static final double[] PERCENTILES = { 0.5, 0.99, 0.999 };
+
+    private final ServiceMetrics metrics;
+
+    public CarRentalMetricsBinder(ServiceMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Operation operation : Operation.values()) {
+            String name = operation.name().toLowerCase(Locale.ROOT);
+            bindTimer(registry, "carrental.operation", metrics.getLatency(operation), "operation", name);
+        }
+
+        for (CarType type : CarType.values()) {
+            FunctionCounter.builder("carrental.reservations", metrics, m -> m.getReservationSuccesses(type))
+                    .description("Booking attempts by outcome")
+                    .tags("type", type.name(), "outcome", "booked")
+                    .register(registry);
+            FunctionCounter.builder("carrental.reservations", metrics, m -> m.getReservationMisses(type))
+                    .description("Booking attempts by outcome")
+                    .tags("type", type.name(), "outcome", "missed")
+                    .register(registry);
+        }
+
+        LogHistogram scanned = metrics.getCarsScanned();
+        FunctionCounter.builder("carrental.cars.scanned", scanned, LogHistogram::getSum)
+                .description("Cars examined by availability checks and booking attempts")
+                .register(registry);
+        FunctionCounter.builder("carrental.cars.scans", scanned, LogHistogram::getCount)
+                .description("Availability checks and booking attempts")
+                .register(registry);
+        Gauge.builder("carrental.cars.scanned.max", scanned, LogHistogram::getMax)
+                .description("Most cars examined by a single check")
+                .register(registry);
+
+        FunctionCounter.builder("carrental.availability.cache", metrics, ServiceMetrics::getCacheHits)
+                .description("Availability cache lookups by result")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("carrental.availability.cache", metrics, ServiceMetrics::getCacheMisses)
+                .description("Availability cache lookups by result")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("carrental.availability.cache.evictions", metrics, ServiceMetrics::getCacheEvictions)
+                .description("Cached availability counts evicted to stay within capacity")
+                .register(registry);
+        FunctionCounter.builder("carrental.availability.cache.invalidations", metrics,
+                ServiceMetrics::getCacheInvalidations)
+                .description("Cached availability counts dropped because a booking changed under them")
+                .register(registry);
+        Gauge.builder("carrental.availability.cache.hit.ratio", metrics, m -> {
+            double lookups = m.getCacheHits() + m.getCacheMisses();
+            return lookups == 0 ? 0 : m.getCacheHits() / lookups;
+        }).register(registry);
+
+        FunctionCounter.builder("carrental.lock.acquisitions", metrics, ServiceMetrics::getLockAcquisitions)
+                .description("Car lock acquisitions")
+                .register(registry);
+        bindTimer(registry, "carrental.lock.wait", metrics.getLockWaits());
+    }
+
+    /**
+     * Registers a histogram of nanosecond values as a function timer, plus
+     * percentile and max gauges in seconds.
+     */
+    private static void bindTimer(MeterRegistry registry, String name, LogHistogram histogram, String... tags) {
+        FunctionTimer.builder(name, histogram, LogHistogram::getCount, LogHistogram::getSum, TimeUnit.NANOSECONDS)
+                .tags(tags)
+                .register(registry);
+        Gauge.builder(name + ".max", histogram, h -> h.getMax() / 1e9)
+                .tags(tags)
+                .baseUnit("seconds")
+                .register(registry);
+        for (double percentile : PERCENTILES) {
+            Gauge.builder(name + ".percentile", histogram, h -> h.getValueAtPercentile(percentile * 100) / 1e9)
+                    .tags(tags)
+                    .tag("phi", Double.toString(percentile))
+                    .baseUnit("seconds")
+                    .register(registry);
+        }
+    }
+}
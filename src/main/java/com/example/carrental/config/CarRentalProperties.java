@@ -0,0 +1,128 @@
+package com.example.carrental.config;
+
+import com.example.carrental.domain.CarType;
+import com.example.carrental.service.AllocationStrategy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Settings for the car rental service, bound from {@code carrental.*}
+ * in application.properties.
+ */
+@ConfigurationProperties(prefix = "carrental")
+public class CarRentalProperties {
+
+    // number of cars of each type in the fleet
+    private Map<CarType, Integer> inventory = new EnumMap<>(CarType.class);
+
+    // where the reservation journal lives; unset keeps state in memory only
+    private Path journalDirectory;
+
+    // number of journal events between automatic snapshots
+    private int snapshotInterval = 100_000;
+
+    // how a car is picked when several of the requested type are free
+    private AllocationStrategy allocationStrategy = AllocationStrategy.FIRST_FIT;
+
+    // how often ended reservations are archived; unset disables the sweeper
+    private Duration archiveInterval;
+
+    // days of day-granular occupancy bitmaps from today, rolled at midnight;
+    // unset leaves the occupancy engine off
+    private Integer occupancyHorizonDays;
+
+    // API requests processed at once; more wait for admissionTimeout, then get 429
+    private int maxConcurrentRequests = 512;
+
+    private Duration admissionTimeout = Duration.ofMillis(200);
+
+    // pool size from which scans fork across cores; unset keeps the service default
+    private Integer parallelThreshold;
+
+    // events held for in-process subscribers, a power of two; unset disables the stream
+    private Integer eventStreamCapacity;
+
+    public Map<CarType, Integer> getInventory() {
+        return inventory;
+    }
+
+    public void setInventory(Map<CarType, Integer> inventory) {
+        this.inventory = inventory;
+    }
+
+    public Path getJournalDirectory() {
+        return journalDirectory;
+    }
+
+    public void setJournalDirectory(Path journalDirectory) {
+        this.journalDirectory = journalDirectory;
+    }
+
+    public int getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    public void setSnapshotInterval(int snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    public AllocationStrategy getAllocationStrategy() {
+        return allocationStrategy;
+    }
+
+    public void setAllocationStrategy(AllocationStrategy allocationStrategy) {
+        this.allocationStrategy = allocationStrategy;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    public Duration getAdmissionTimeout() {
+        return admissionTimeout;
+    }
+
+    public void setAdmissionTimeout(Duration admissionTimeout) {
+        this.admissionTimeout = admissionTimeout;
+    }
+
+    public Duration getArchiveInterval() {
+        return archiveInterval;
+    }
+
+    public void setArchiveInterval(Duration archiveInterval) {
+        this.archiveInterval = archiveInterval;
+    }
+
+    public Integer getOccupancyHorizonDays() {
+        return occupancyHorizonDays;
+    }
+
+    public void setOccupancyHorizonDays(Integer occupancyHorizonDays) {
+        this.occupancyHorizonDays = occupancyHorizonDays;
+    }
+
+    public Integer getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public void setParallelThreshold(Integer parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public Integer getEventStreamCapacity() {
+        return eventStreamCapacity;
+    }
+
+    public void setEventStreamCapacity(Integer eventStreamCapacity) {
+        this.eventStreamCapacity = eventStreamCapacity;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.carrental.config;
+
+import com.example.carrental.web.AdmissionFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Puts bounded admission in front of the HTTP API. Limits come from
+ * {@code carrental.max-concurrent-requests} and
+ * {@code carrental.admission-timeout}.
+ */
+@Configuration
+public class WebConfiguration {
+
+    @Bean
+    public FilterRegistrationBean<AdmissionFilter> admissionFilter(CarRentalProperties properties) {
+        FilterRegistrationBean<AdmissionFilter> registration = new FilterRegistrationBean<>(
+                new AdmissionFilter(properties.getMaxConcurrentRequests(), properties.getAdmissionTimeout()));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    @Bean
+    public MeterBinder admissionMetrics(FilterRegistrationBean<AdmissionFilter> admissionFilter) {
+        return registry -> FunctionCounter.builder("carrental.http.rejected", admissionFilter.getFilter(),
+                AdmissionFilter::getRejectedCount)
+                .description("API requests shed because the server was at capacity")
+                .register(registry);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.carrental.domain;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of an all-or-nothing group booking.
+ * Either every request was booked, in which case the reservations are
+ * returned in request order, or nothing was booked and the failures map
+ * explains which requests could not be satisfied and why.
+ */
+public class BatchReservationResult {
+    private final List<Reservation> reservations;
+    private final Map<Integer, String> failures;
+
+    private BatchReservationResult(List<Reservation> reservations, Map<Integer, String> failures) {
+        this.reservations = reservations;
+        this.failures = failures;
+    }
+
+    public static BatchReservationResult success(List<Reservation> reservations) {
+        return new BatchReservationResult(List.copyOf(reservations), Collections.emptyMap());
+    }
+
+    public static BatchReservationResult failure(Map<Integer, String> failures) {
+        return new BatchReservationResult(Collections.emptyList(), Collections.unmodifiableMap(failures));
+    }
+
+    /**
+     * @return true if every request in the batch was booked
+     */
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * @return the reservations in request order, empty if the batch failed
+     */
+    public List<Reservation> getReservations() {
+        return reservations;
+    }
+
+    /**
+     * @return failure reasons keyed by the index of the request in the batch,
+     *         empty if the batch succeeded
+     */
+    public Map<Integer, String> getFailures() {
+        return failures;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchReservationResult{" +
+                "reservations=" + reservations +
+                ", failures=" + failures +
+                "}";
+    }
+}
@@ -1,20 +1,32 @@
 package com.example.carrental.domain;
 
-import java.util.Objects;
-import java.util.UUID;
-
 /**
  * Represents a car in the rental system
- * Each car has a unique ID and a specific type
+ * Each car has a unique index and a specific type
+ * The index is what the service uses internally; the string ID is only
+ * its decimal form for callers
  * In a real system the car could also have a license plate, mileage,
  * or other attributes
  */
 public class Car {
-    private final String id; // unique identifier for this car instance
+    private final int index; // unique identifier for this car instance
+    private final String id; // string form of the index, built once
     private final CarType type; // the category of vehicle
 
-    public Car(CarType type) {
-        this.id = UUID.randomUUID().toString();
+    /**
+     * Creates a car with a known index. Indexes must be stable across
+     * restarts when reservations are persisted, since they reference cars
+     * by index.
+     */
+    public Car(int index, CarType type) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Car index cannot be negative");
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("Car type cannot be null");
+        }
+        this.index = index;
+        this.id = Integer.toString(index);
         this.type = type;
     }
 
@@ -22,6 +34,10 @@ public class Car {
         return id;
     }
 
+    public int getIndex() {
+        return index;
+    }
+
     public CarType getType() {
         return type;
     }
@@ -33,19 +49,19 @@ public class Car {
         if (o == null || getClass() != o.getClass())
             return false;
         Car car = (Car) o;
-        return Objects.equals(id, car.id);
+        return index == car.index;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return Integer.hashCode(index);
     }
 
     @Override
     public String toString() {
         return "Car{" +
-                "id='" + id + '\'' +
+                "id=" + index +
                 ", type=" + type +
                 '}';
     }
-}
\ No newline at end of file
+}
@@ -1,28 +1,39 @@
 package com.example.carrental.domain;
 
 import java.time.LocalDateTime;
-import java.util.Objects;
-import java.util.UUID;
+import java.time.ZoneOffset;
 
 /**
  * Represents a reservation in the car rental system.
  * A reservation is immutable once created and tracks a car rental for a
  * specific time period.
+ *
+ * The booking window is also kept as epoch seconds so overlap checks on the
+ * hot path compare two longs instead of allocating LocalDateTime objects.
+ * Times are compared at one-second resolution.
+ *
+ * Ids are compact numbers: a 64-bit reservation id from {@link IdGenerator}
+ * and the int index of the car. Their string forms are only built at the
+ * API edge, by {@link #getId()} and {@link #getCarId()}.
  */
 public class Reservation {
-    private final String id;
-    private final String carId;
+    public static final long SECONDS_PER_DAY = 86_400L;
+
+    private final long id;
+    private final int carIndex;
     private final CarType carType;
     private final LocalDateTime start;
     private final int numberOfDays;
+    private final long startEpochSecond;
+    private final long endEpochSecond;
 
-    public Reservation(String carId, CarType carType,
+    public Reservation(long id, int carIndex, CarType carType,
             LocalDateTime start, int numberOfDays) {
         if (numberOfDays <= 0) {
             throw new IllegalArgumentException("Number of days must be greater than 0");
         }
-        if (carId == null || carId.isBlank()) {
-            throw new IllegalArgumentException("Car ID cannot be null or empty");
+        if (carIndex < 0) {
+            throw new IllegalArgumentException("Car index cannot be negative");
         }
         if (carType == null) {
             throw new IllegalArgumentException("Car type cannot be null");
@@ -31,19 +42,41 @@ public class Reservation {
             throw new IllegalArgumentException("Start time cannot be null");
         }
 
-        this.id = UUID.randomUUID().toString();
-        this.carId = carId;
+        this.id = id;
+        this.carIndex = carIndex;
         this.carType = carType;
         this.start = start;
         this.numberOfDays = numberOfDays;
+        this.startEpochSecond = toEpochSecond(start);
+        this.endEpochSecond = startEpochSecond + numberOfDays * SECONDS_PER_DAY;
+    }
+
+    /**
+     * Converts a wall-clock time to the epoch-second scale used for overlap
+     * checks. LocalDateTime has no zone, so UTC is used as a fixed offset;
+     * the conversion allocates nothing.
+     *
+     * @param time the time to convert
+     * @return seconds since 1970-01-01T00:00
+     */
+    public static long toEpochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
     }
 
     public String getId() {
+        return Long.toString(id);
+    }
+
+    public long getNumericId() {
         return id;
     }
 
     public String getCarId() {
-        return carId;
+        return Integer.toString(carIndex);
+    }
+
+    public int getCarIndex() {
+        return carIndex;
     }
 
     public CarType getCarType() {
@@ -62,6 +95,14 @@ public class Reservation {
         return start.plusDays(numberOfDays);
     }
 
+    public long getStartEpochSecond() {
+        return startEpochSecond;
+    }
+
+    public long getEndEpochSecond() {
+        return endEpochSecond;
+    }
+
     /**
      * Determines whether the time period covered by this reservation
      * overlaps with another booking window. Used by the service to
@@ -72,9 +113,20 @@ public class Reservation {
      * @return true if the intervals intersect (even by a partial day)
      */
     public boolean overlaps(LocalDateTime otherStart, int otherDays) {
-        LocalDateTime otherEnd = otherStart.plusDays(otherDays);
+        long otherStartSecond = toEpochSecond(otherStart);
+        return overlaps(otherStartSecond, otherStartSecond + otherDays * SECONDS_PER_DAY);
+    }
+
+    /**
+     * Allocation-free overlap check against a window given in epoch seconds.
+     *
+     * @param otherStart start of the other booking, inclusive
+     * @param otherEnd   end of the other booking, exclusive
+     * @return true if the intervals intersect
+     */
+    public boolean overlaps(long otherStart, long otherEnd) {
         // overlap occurs when this.start < otherEnd AND this.end > otherStart
-        return start.isBefore(otherEnd) && getEnd().isAfter(otherStart);
+        return startEpochSecond < otherEnd && endEpochSecond > otherStart;
     }
 
     @Override
@@ -84,19 +136,19 @@ public class Reservation {
         if (o == null || getClass() != o.getClass())
             return false;
         Reservation that = (Reservation) o;
-        return Objects.equals(id, that.id);
+        return id == that.id;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return Long.hashCode(id);
     }
 
     @Override
     public String toString() {
         return "Reservation{" +
-                "id='" + id + '\'' +
-                ", carId='" + carId + '\'' +
+                "id=" + id +
+                ", carIndex=" + carIndex +
                 ", carType=" + carType +
                 ", start=" + start +
                 ", numberOfDays=" + numberOfDays +
@@ -0,0 +1,39 @@
+package com.example.carrental.domain;
+
+import java.util.List;
+
+/**
+ * One page of a reservation query. Pass {@link #getNextCursor()} back to
+ * fetch the page after it.
+ *
+ * The cursor records the last reservation's start and id rather than an
+ * offset, so pages stay correct while reservations are added or cancelled
+ * between calls.
+ */
+public class ReservationPage {
+    private final List<Reservation> reservations;
+    private final String nextCursor;
+
+    public ReservationPage(List<Reservation> reservations, String nextCursor) {
+        this.reservations = List.copyOf(reservations);
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @return the reservations on this page, ordered by start time
+     */
+    public List<Reservation> getReservations() {
+        return reservations;
+    }
+
+    /**
+     * @return the cursor for the next page, or null if this is the last
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.carrental.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filter for streaming and paging through reservations. Immutable; each
+ * {@code with...} method returns a narrowed copy, starting from
+ * {@link #all()}.
+ *
+ * Results are always ordered by start time, then id.
+ */
+public class ReservationQuery {
+    private static final ReservationQuery ALL = new ReservationQuery(null, null, null, null);
+
+    private final CarType carType;
+    private final String carId;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+
+    private ReservationQuery(CarType carType, String carId, LocalDateTime from, LocalDateTime to) {
+        this.carType = carType;
+        this.carId = carId;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @return a query matching every reservation
+     */
+    public static ReservationQuery all() {
+        return ALL;
+    }
+
+    /**
+     * @return a copy matching only reservations of the given car type
+     */
+    public ReservationQuery withCarType(CarType type) {
+        if (type == null) {
+            throw new IllegalArgumentException("Car type cannot be null");
+        }
+        return new ReservationQuery(type, carId, from, to);
+    }
+
+    /**
+     * @return a copy matching only reservations of the given car
+     */
+    public ReservationQuery withCar(String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Car ID cannot be null");
+        }
+        return new ReservationQuery(carType, id, from, to);
+    }
+
+    /**
+     * @return a copy matching only reservations overlapping
+     *         {@code [windowStart, windowEnd)}
+     */
+    public ReservationQuery withWindow(LocalDateTime windowStart, LocalDateTime windowEnd) {
+        if (windowStart == null || windowEnd == null) {
+            throw new IllegalArgumentException("Window bounds cannot be null");
+        }
+        if (!windowStart.isBefore(windowEnd)) {
+            throw new IllegalArgumentException("Window start must be before window end");
+        }
+        return new ReservationQuery(carType, carId, windowStart, windowEnd);
+    }
+
+    /**
+     * @return the car type to match, or null for any
+     */
+    public CarType getCarType() {
+        return carType;
+    }
+
+    /**
+     * @return the car ID to match, or null for any
+     */
+    public String getCarId() {
+        return carId;
+    }
+
+    /**
+     * @return the start of the window to match, or null if unbounded
+     */
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    /**
+     * @return the end of the window to match, or null if unbounded
+     */
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    @Override
+    public String toString() {
+        return "ReservationQuery{" +
+                "carType=" + carType +
+                ", carId=" + carId +
+                ", from=" + from +
+                ", to=" + to +
+                "}";
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.carrental.domain;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * A request to book one car of a given type, used for group bookings
+ * where several cars are reserved together.
+ * Validated on construction so a batch never contains malformed items.
+ */
+public class ReservationRequest {
+    private final CarType carType;
+    private final LocalDateTime start;
+    private final int numberOfDays;
+
+    public ReservationRequest(CarType carType, LocalDateTime start, int numberOfDays) {
+        if (carType == null) {
+            throw new IllegalArgumentException("Car type cannot be null");
+        }
+        if (start == null) {
+            throw new IllegalArgumentException("Start time cannot be null");
+        }
+        if (numberOfDays <= 0) {
+            throw new IllegalArgumentException("Number of days must be greater than 0");
+        }
+
+        this.carType = carType;
+        this.start = start;
+        this.numberOfDays = numberOfDays;
+    }
+
+    public CarType getCarType() {
+        return carType;
+    }
+
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    public int getNumberOfDays() {
+        return numberOfDays;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        ReservationRequest that = (ReservationRequest) o;
+        return numberOfDays == that.numberOfDays
+                && carType == that.carType
+                && Objects.equals(start, that.start);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(carType, start, numberOfDays);
+    }
+
+    @Override
+    public String toString() {
+        return "ReservationRequest{" +
+                "carType=" + carType +
+                ", start=" + start +
+                ", numberOfDays=" + numberOfDays +
+                "}";
+    }
+}
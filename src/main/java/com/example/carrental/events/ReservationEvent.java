@@ -0,0 +1,59 @@
+package com.example.carrental.events;
+
+import com.example.carrental.domain.Reservation;
+
+/**
+ * One change to the reservations of a service, as read from its
+ * {@link ReservationEventStream}.
+ */
+public class ReservationEvent {
+
+    /**
+     * What happened to the reservation.
+     */
+    public enum Kind {
+        RESERVED,
+        CANCELLED,
+        // moved to another car when its car was retired; same id and dates
+        REASSIGNED
+    }
+
+    private final long sequence;
+    private final Kind kind;
+    private final Reservation reservation;
+
+    public ReservationEvent(long sequence, Kind kind, Reservation reservation) {
+        this.sequence = sequence;
+        this.kind = kind;
+        this.reservation = reservation;
+    }
+
+    /**
+     * @return the position of the event in the stream, increasing by one
+     *         per event
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the reservation as it was after the change; for a cancel, as
+     *         it was when cancelled
+     */
+    public Reservation getReservation() {
+        return reservation;
+    }
+
+    @Override
+    public String toString() {
+        return "ReservationEvent{" +
+                "sequence=" + sequence +
+                ", kind=" + kind +
+                ", reservation=" + reservation +
+                '}';
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.carrental.events;
+
+import com.example.carrental.domain.Reservation;
+import com.example.carrental.exception.EventStreamOverflowException;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * In-process stream of reservation changes, held in a fixed ring of slots
+ * allocated up front.
+ *
+ * Publishing claims the next sequence number with one atomic increment and
+ * writes into the slot it maps to; it never allocates, takes a lock, or
+ * waits for a subscriber. Each slot carries a version, odd while being
+ * written and {@code 2 * sequence + 2} once the event at that sequence is
+ * readable, so a reader can tell a slot that is not written yet from one
+ * that has already been overwritten by a later lap.
+ *
+ * Subscribers keep their own cursor and read in batches, never slowing
+ * publishers down. A subscriber that falls more than a ring behind has
+ * lost the events in between; its {@link OverflowPolicy} decides whether it
+ * skips to the oldest event still held or is told with an exception.
+ */
+public class ReservationEventStream {
+
+    /**
+     * What a subscriber does when events it has not read were overwritten.
+     */
+    public enum OverflowPolicy {
+        // carry on from the oldest event still held, counting the gap
+        SKIP,
+        // as SKIP, but throw EventStreamOverflowException from poll so the
+        // subscriber can resynchronise, e.g. from getAllReservations()
+        FAIL
+    }
+
+    private static final ReservationEvent.Kind[] KINDS = ReservationEvent.Kind.values();
+
+    private final int capacity;
+    private final int mask;
+    // the next sequence to hand to a publisher
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicLongArray versions;
+    // slot payload, published by the release store of the slot's version;
+    // reservations are immutable, so a racy read is never torn
+    private final Reservation[] reservations;
+    private final byte[] kinds;
+
+    /**
+     * @param capacity the number of events held, a power of two
+     * @throws IllegalArgumentException if capacity is not a positive power of two
+     */
+    public ReservationEventStream(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Event stream capacity must be a positive power of two");
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.versions = new AtomicLongArray(capacity);
+        this.reservations = new Reservation[capacity];
+        this.kinds = new byte[capacity];
+    }
+
+    /**
+     * Appends an event. Safe to call from any number of threads at once.
+     *
+     * @param kind        what happened
+     * @param reservation the reservation as it is after the change
+     */
+    public void publish(ReservationEvent.Kind kind, Reservation reservation) {
+        long sequence = next.getAndIncrement();
+        int slot = (int) (sequence & mask);
+        long writing = 2 * sequence + 1;
+        while (true) {
+            long version = versions.get(slot);
+            if (version >= writing) {
+                // a publisher a whole ring ahead already took the slot; the
+                // event is lost, and readers see it as an overflow
+                return;
+            }
+            if ((version & 1) != 0) {
+                // the publisher a ring behind is between its two stores
+                Thread.onSpinWait();
+                continue;
+            }
+            if (versions.compareAndSet(slot, version, writing)) {
+                break;
+            }
+        }
+        reservations[slot] = reservation;
+        kinds[slot] = (byte) kind.ordinal();
+        versions.set(slot, writing + 1);
+    }
+
+    /**
+     * Starts reading from the next event published.
+     *
+     * @param policy what to do when the subscriber falls a ring behind
+     * @return a subscription for a single consuming thread
+     * @throws IllegalArgumentException if policy is null
+     */
+    public Subscription subscribe(OverflowPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Overflow policy cannot be null");
+        }
+        return new Subscription(policy, next.get());
+    }
+
+    /**
+     * @return the number of events held before the oldest is overwritten
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of events published so far, which is also the
+     *         sequence of the next one
+     */
+    public long getPublishedCount() {
+        return next.get();
+    }
+
+    /**
+     * A reader's position in the stream. Not thread-safe: each consuming
+     * thread subscribes on its own.
+     */
+    public class Subscription {
+
+        private final OverflowPolicy policy;
+        private long cursor;
+        private long lost;
+
+        private Subscription(OverflowPolicy policy, long cursor) {
+            this.policy = policy;
+            this.cursor = cursor;
+        }
+
+        /**
+         * Hands the events published since the last call to the handler,
+         * oldest first, stopping early at an event still being written.
+         *
+         * @param handler   called once per event on the calling thread
+         * @param maxEvents the most events to hand over in this call
+         * @return the number of events handed over
+         * @throws EventStreamOverflowException under {@link OverflowPolicy#FAIL},
+         *                                      if unread events were overwritten;
+         *                                      the next call carries on from the
+         *                                      oldest event still held
+         */
+        public int poll(Consumer<? super ReservationEvent> handler, int maxEvents) {
+            if (handler == null) {
+                throw new IllegalArgumentException("Handler cannot be null");
+            }
+            int polled = 0;
+            while (polled < maxEvents) {
+                long sequence = cursor;
+                int slot = (int) (sequence & mask);
+                long readable = 2 * sequence + 2;
+                long version = versions.get(slot);
+                if (version < readable) {
+                    // not published yet
+                    break;
+                }
+                if (version == readable) {
+                    Reservation reservation = reservations[slot];
+                    byte kind = kinds[slot];
+                    // the payload reads must not move below the re-check
+                    VarHandle.loadLoadFence();
+                    if (versions.get(slot) == readable) {
+                        cursor = sequence + 1;
+                        handler.accept(new ReservationEvent(sequence, KINDS[kind], reservation));
+                        polled++;
+                        continue;
+                    }
+                }
+                overflowed();
+            }
+            return polled;
+        }
+
+        private void overflowed() {
+            long resume = Math.max(cursor + 1, next.get() - capacity);
+            long skipped = resume - cursor;
+            cursor = resume;
+            lost += skipped;
+            if (policy == OverflowPolicy.FAIL) {
+                throw new EventStreamOverflowException(skipped);
+            }
+        }
+
+        /**
+         * @return the sequence of the next event this subscriber reads
+         */
+        public long getSequence() {
+            return cursor;
+        }
+
+        /**
+         * @return the number of events published but not yet read
+         */
+        public long getLag() {
+            return Math.max(0, next.get() - cursor);
+        }
+
+        /**
+         * @return the number of events overwritten before this subscriber
+         *         read them
+         */
+        public long getLostCount() {
+            return lost;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.carrental.exception;
+
+/**
+ * Exception thrown to a subscriber of the reservation event stream that
+ * fell so far behind that events it had not read yet were overwritten.
+ */
+public class EventStreamOverflowException extends RuntimeException {
+
+    private final long lostEvents;
+
+    public EventStreamOverflowException(long lostEvents) {
+        super(lostEvents + " reservation events were overwritten before they were read");
+        this.lostEvents = lostEvents;
+    }
+
+    /**
+     * @return the number of events skipped over
+     */
+    public long getLostEvents() {
+        return lostEvents;
+    }
+}
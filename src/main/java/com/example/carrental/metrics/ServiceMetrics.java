@@ -0,0 +1,151 @@
+package com.example.carrental.metrics;
+
+import com.example.carrental.domain.CarType;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hot-path counters and latency histograms for CarRentalService.
+ *
+ * Everything here is striped ({@link LongAdder} based), so recording from
+ * many booking threads at once adds no shared write contention. The service
+ * owns one instance and records into it directly; exporters such as the
+ * Micrometer binder in the config package only read from it.
+ */
+public class ServiceMetrics {
+
+    /**
+     * The public service operations that are timed.
+     */
+    public enum Operation {
+        RESERVE,
+        RESERVE_BATCH,
+        CANCEL,
+        CANCEL_BATCH,
+        GET_RESERVATION,
+        GET_CAR_RESERVATIONS,
+        GET_ALL_RESERVATIONS,
+        AVAILABILITY_COUNT,
+        AVAILABILITY_BUCKETS
+    }
+
+    private final Map<Operation, LogHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<CarType, LongAdder> reserveSuccesses = new EnumMap<>(CarType.class);
+    private final Map<CarType, LongAdder> reserveMisses = new EnumMap<>(CarType.class);
+    // cars whose schedule was examined per availability check or booking attempt
+    private final LogHistogram carsScanned = new LogHistogram();
+    private final LongAdder lockAcquisitions = new LongAdder();
+    // nanoseconds spent waiting, recorded only when the lock was already held
+    private final LogHistogram lockWaits = new LogHistogram();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder cacheEvictions = new LongAdder();
+    private final LongAdder cacheInvalidations = new LongAdder();
+
+    public ServiceMetrics() {
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LogHistogram());
+        }
+        for (CarType type : CarType.values()) {
+            reserveSuccesses.put(type, new LongAdder());
+            reserveMisses.put(type, new LongAdder());
+        }
+    }
+
+    /**
+     * Records one call of an operation that started at {@code startNanos},
+     * as read from {@link System#nanoTime()}.
+     */
+    public void recordLatency(Operation operation, long startNanos) {
+        latencies.get(operation).record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records the outcome of one attempt to book a car of the given type.
+     */
+    public void recordReservation(CarType type, boolean booked) {
+        (booked ? reserveSuccesses : reserveMisses).get(type).increment();
+    }
+
+    public void recordCarsScanned(int cars) {
+        carsScanned.record(cars);
+    }
+
+    /**
+     * Records a car lock acquisition.
+     *
+     * @param waitNanos how long the caller blocked, or 0 if the lock was free
+     */
+    public void recordLockAcquired(long waitNanos) {
+        lockAcquisitions.increment();
+        if (waitNanos > 0) {
+            lockWaits.record(waitNanos);
+        }
+    }
+
+    public void recordCacheHit() {
+        cacheHits.increment();
+    }
+
+    public void recordCacheMiss() {
+        cacheMisses.increment();
+    }
+
+    public void recordCacheEviction() {
+        cacheEvictions.increment();
+    }
+
+    /**
+     * @param entries the number of cached availability counts dropped
+     *                because a booking changed under them
+     */
+    public void recordCacheInvalidations(int entries) {
+        cacheInvalidations.add(entries);
+    }
+
+    public LogHistogram getLatency(Operation operation) {
+        return latencies.get(operation);
+    }
+
+    public long getReservationSuccesses(CarType type) {
+        return reserveSuccesses.get(type).sum();
+    }
+
+    public long getReservationMisses(CarType type) {
+        return reserveMisses.get(type).sum();
+    }
+
+    public LogHistogram getCarsScanned() {
+        return carsScanned;
+    }
+
+    public long getLockAcquisitions() {
+        return lockAcquisitions.sum();
+    }
+
+    /**
+     * @return wait times of the acquisitions that found the lock held; its
+     *         count is the number of contended acquisitions
+     */
+    public LogHistogram getLockWaits() {
+        return lockWaits;
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    public long getCacheEvictions() {
+        return cacheEvictions.sum();
+    }
+
+    public long getCacheInvalidations() {
+        return cacheInvalidations.sum();
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.carrental.persistence;
+
+import com.example.carrental.domain.Car;
+import com.example.carrental.domain.CarType;
+import com.example.carrental.domain.Reservation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Compact, memory-mapped, read-only image of the fleet and its bookings,
+ * used to answer availability queries without building Car and
+ * Reservation objects on the heap.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   header       magic, version, carCount, rowCount          4 x int
+ *   type table   per CarType ordinal: firstCar, carCount     2 x int each
+ *   car table    per car index: firstRow, plus a sentinel    int each
+ *   rows         per booking: startMinute, endMinute         2 x int each
+ * </pre>
+ * Cars are grouped by type, and each car's rows are sorted by start, so a
+ * query is a binary search per car over 8-byte rows straight from the
+ * mapping.
+ *
+ * Times are stored as epoch minutes. Starts are rounded down and ends
+ * rounded up, so a booking never appears shorter than it is and the
+ * snapshot never reports a booked car as free.
+ */
+public class FleetSnapshot {
+
+    private static final int MAGIC = 0x43524653;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int ROW_BYTES = 8;
+    private static final CarType[] CAR_TYPES = CarType.values();
+
+    private final ByteBuffer buffer;
+    private final int carCount;
+    private final int rowCount;
+    private final int carTableOffset;
+    private final int rowOffset;
+
+    private FleetSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unrecognised fleet snapshot");
+        }
+        this.carCount = buffer.getInt(8);
+        this.rowCount = buffer.getInt(12);
+        this.carTableOffset = HEADER_BYTES + CAR_TYPES.length * 8;
+        this.rowOffset = carTableOffset + (carCount + 1) * 4;
+        if (buffer.capacity() != rowOffset + (long) rowCount * ROW_BYTES) {
+            throw new IOException("Truncated fleet snapshot");
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given fleet. The file is written to a
+     * temporary name and moved into place, so readers never see a
+     * partial file.
+     *
+     * @param file     the snapshot file to create or replace
+     * @param cars     the fleet
+     * @param bookings the reservations of each car, in start-time order
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, List<Car> cars, Function<Car, List<Reservation>> bookings)
+            throws IOException {
+        List<Car> byType = new ArrayList<>(cars);
+        byType.sort(Comparator.comparing(Car::getType));
+        List<List<Reservation>> rows = new ArrayList<>(byType.size());
+        long rowCount = 0;
+        for (Car car : byType) {
+            List<Reservation> carRows = bookings.apply(car);
+            rows.add(carRows);
+            rowCount += carRows.size();
+        }
+        long size = HEADER_BYTES + CAR_TYPES.length * 8L + (byType.size() + 1) * 4L + rowCount * ROW_BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Fleet snapshot would exceed 2 GB");
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(byType.size()).putInt((int) rowCount);
+
+            int[] firstCar = new int[CAR_TYPES.length];
+            int[] typeCount = new int[CAR_TYPES.length];
+            for (int i = byType.size() - 1; i >= 0; i--) {
+                int ordinal = byType.get(i).getType().ordinal();
+                firstCar[ordinal] = i;
+                typeCount[ordinal]++;
+            }
+            for (int ordinal = 0; ordinal < CAR_TYPES.length; ordinal++) {
+                out.putInt(firstCar[ordinal]).putInt(typeCount[ordinal]);
+            }
+
+            int firstRow = 0;
+            for (List<Reservation> carRows : rows) {
+                out.putInt(firstRow);
+                firstRow += carRows.size();
+            }
+            out.putInt(firstRow);
+
+            for (List<Reservation> carRows : rows) {
+                for (Reservation reservation : carRows) {
+                    out.putInt((int) Math.floorDiv(reservation.getStartEpochSecond(), 60));
+                    out.putInt((int) -Math.floorDiv(-reservation.getEndEpochSecond(), 60));
+                }
+            }
+            out.force();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps a snapshot read-only. Nothing is deserialized up front; the
+     * operating system pages the file in as queries touch it.
+     *
+     * @param file the snapshot file
+     * @return a view answering availability queries from the mapping
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static FleetSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new FleetSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @param type the type of car
+     * @return the number of cars of that type in the snapshot
+     */
+    public int getTotalCarsCount(CarType type) {
+        return buffer.getInt(HEADER_BYTES + type.ordinal() * 8 + 4);
+    }
+
+    /**
+     * @return the number of bookings in the snapshot
+     */
+    public int getReservationCount() {
+        return rowCount;
+    }
+
+    /**
+     * Counts the cars of a type that were free for the whole window when
+     * the snapshot was taken.
+     *
+     * @param type  the type of car
+     * @param start the start time
+     * @param days  the number of days
+     * @return the number of available cars of the specified type
+     * @throws IllegalArgumentException if parameters are invalid
+     */
+    public int getAvailableCarsCount(CarType type, LocalDateTime start, int days) {
+        // the same checks as the live service, before start is converted
+        if (type == null) {
+            throw new IllegalArgumentException("Car type cannot be null");
+        }
+        if (start == null) {
+            throw new IllegalArgumentException("Start time cannot be null");
+        }
+        if (days <= 0) {
+            throw new IllegalArgumentException("Number of days must be greater than 0");
+        }
+        long startSecond = Reservation.toEpochSecond(start);
+        long endSecond = startSecond + days * Reservation.SECONDS_PER_DAY;
+        int firstCar = buffer.getInt(HEADER_BYTES + type.ordinal() * 8);
+        int cars = getTotalCarsCount(type);
+        int available = 0;
+        for (int car = firstCar; car < firstCar + cars; car++) {
+            if (isFree(car, startSecond, endSecond)) {
+                available++;
+            }
+        }
+        return available;
+    }
+
+    private boolean isFree(int car, long startSecond, long endSecond) {
+        int low = buffer.getInt(carTableOffset + car * 4);
+        int high = buffer.getInt(carTableOffset + (car + 1) * 4) - 1;
+        // find the last row starting before the window ends; rows on one
+        // car never overlap, so it is the only one that can collide
+        int first = low;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getInt(rowOffset + mid * ROW_BYTES) * 60L < endSecond) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high < first || buffer.getInt(rowOffset + high * ROW_BYTES + 4) * 60L <= startSecond;
+    }
+}
@@ -0,0 +1,861 @@
+package com.example.carrental.persistence;
+
+import com.example.carrental.domain.Car;
+import com.example.carrental.domain.CarType;
+import com.example.carrental.domain.Reservation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of reserve and cancel events, so
+ * reservations survive a restart of the service. Cars added to or retired
+ * from the fleet at runtime, and bookings moved off retired cars, are
+ * journaled too, so they come back with the reservations that use them.
+ * Bookings moved into the archive are journaled as well, so they come back
+ * archived rather than live.
+ *
+ * Writers hand their encoded events to a single writer thread and wait
+ * until it has been fsynced. While one batch is being forced to disk the
+ * next callers queue up behind it, so each fsync covers every booking that
+ * arrived in the meantime (group commit) instead of one fsync per booking.
+ * Events reach the log in the order they are queued. A booking queued
+ * with {@link #appendReserved} before other threads can see it is
+ * therefore always logged before any cancellation of it. The caller marks
+ * it {@linkplain PendingWrite#applied() applied} once the booking is in
+ * the live state, and a snapshot waits for every booking already logged
+ * to be applied, so truncating the log never loses one.
+ *
+ * Every {@code snapshotInterval} events the writer thread also writes a
+ * compact snapshot of the live reservations and truncates the log, so a
+ * restart only replays the snapshot plus the tail of the log written since.
+ * The snapshot is taken on the writer thread between batches, so no event
+ * can reach the log between capturing the live state and truncating it;
+ * events still queued at that point are replayed idempotently on top of
+ * the snapshot.
+ *
+ * Snapshots start with the fleet changes, kept in memory as they are
+ * recorded, followed by the archived reservations and then the live ones.
+ * Recovery hands the two back separately, so restoring history never costs
+ * a live check anything.
+ *
+ * Each record is {@code [length][crc32][payload]}. A torn write at the end
+ * of the log after a crash fails the length or checksum test and is cut off
+ * during recovery.
+ *
+ * A batch whose write or fsync fails is reported to its callers, who roll
+ * back, and the log is cut back to the end of the last batch that reached
+ * disk. If even that fails the journal stays {@linkplain #isHealthy()
+ * unhealthy} and each later batch retries the cut first, so it recovers by
+ * itself once the disk does. A failed snapshot only fails the compaction
+ * that asked for it; the log it would have replaced is left intact.
+ */
+public class ReservationJournal implements AutoCloseable {
+
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 100_000;
+
+    static final String LOG_FILE = "reservations.log";
+    static final String SNAPSHOT_FILE = "reservations.snapshot";
+
+    private static final int SNAPSHOT_MAGIC = 0x43525353;
+    private static final int FORMAT_VERSION = 4;
+    // snapshots from before fleet changes or archiving were journaled read
+    // the same way
+    private static final int OLDEST_READABLE_VERSION = 2;
+    private static final int RECORD_HEADER = 8;
+    private static final byte RESERVED = 1;
+    private static final byte CANCELLED = 2;
+    private static final byte CAR_ADDED = 3;
+    private static final byte CAR_RETIRED = 4;
+    private static final byte REASSIGNED = 5;
+    private static final byte ARCHIVED = 6;
+    private static final CarType[] CAR_TYPES = CarType.values();
+    private static final System.Logger LOG = System.getLogger(ReservationJournal.class.getName());
+
+    private final Path directory;
+    private final FileChannel log;
+    private final int snapshotInterval;
+    private final Map<Long, Reservation> recovered;
+    private final Map<Long, Reservation> recoveredArchive = new LinkedHashMap<>();
+    // every fleet change recorded so far, recovered or new, by car index
+    private final NavigableMap<Integer, CarType> addedCars = new ConcurrentSkipListMap<>();
+    private final NavigableSet<Integer> retiredCars = new ConcurrentSkipListSet<>();
+    private final BlockingQueue<Write> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+
+    private volatile Supplier<? extends Collection<Reservation>> liveState;
+    private volatile Supplier<? extends Collection<Reservation>> archivedState;
+    private volatile IOException failure;
+    private volatile boolean closed;
+    // only touched by the writer thread
+    private long eventsSinceSnapshot;
+    // end of the last batch forced to disk; only touched by the writer thread
+    private long durableEnd;
+    // logged bookings not yet in the live state; only touched by the writer thread
+    private final List<Write> unapplied = new ArrayList<>();
+
+    private ReservationJournal(Path directory, int snapshotInterval, UnaryOperator<FileChannel> wrapLog)
+            throws IOException {
+        this.directory = directory;
+        this.snapshotInterval = snapshotInterval;
+        this.recovered = new LinkedHashMap<>();
+
+        Files.createDirectories(directory);
+        readSnapshot(directory.resolve(SNAPSHOT_FILE));
+        FileChannel channel = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long validEnd = replayLog(channel);
+        // drop a torn tail left by a crash mid-write
+        channel.truncate(validEnd);
+        channel.position(validEnd);
+        this.durableEnd = validEnd;
+        this.log = wrapLog.apply(channel);
+
+        this.writer = new Thread(this::runWriter, "reservation-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Opens the journal in the given directory, creating it if needed, and
+     * recovers the reservations recorded there.
+     *
+     * @param directory where the log and snapshot files live
+     * @return the open journal
+     * @throws IOException if the files cannot be read or created
+     */
+    public static ReservationJournal open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * @param directory        where the log and snapshot files live
+     * @param snapshotInterval number of events between automatic snapshots
+     * @return the open journal
+     * @throws IOException if the files cannot be read or created
+     */
+    public static ReservationJournal open(Path directory, int snapshotInterval) throws IOException {
+        return open(directory, snapshotInterval, UnaryOperator.identity());
+    }
+
+    /**
+     * Opens the journal with its log channel wrapped, e.g. by tests that
+     * make writes fail.
+     */
+    static ReservationJournal open(Path directory, int snapshotInterval, UnaryOperator<FileChannel> wrapLog)
+            throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("Journal directory cannot be null");
+        }
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be greater than 0");
+        }
+        return new ReservationJournal(directory, snapshotInterval, wrapLog);
+    }
+
+    /**
+     * @return the reservations that were live when the journal was last
+     *         closed or crashed, in the order they were recorded
+     */
+    public Collection<Reservation> getRecoveredReservations() {
+        return Collections.unmodifiableCollection(recovered.values());
+    }
+
+    /**
+     * @return the reservations that were archived when the journal was last
+     *         closed or crashed, in the order they were archived
+     */
+    public Collection<Reservation> getRecoveredArchive() {
+        return Collections.unmodifiableCollection(recoveredArchive.values());
+    }
+
+    /**
+     * @return the cars recorded before the journal was last closed or
+     *         crashed, in index order: the whole fleet with its types, or
+     *         for a journal written before the configured inventory was
+     *         recorded, only the cars added at runtime
+     */
+    public List<Car> getAddedCars() {
+        List<Car> cars = new ArrayList<>(addedCars.size());
+        addedCars.forEach((index, type) -> cars.add(new Car(index, type)));
+        return cars;
+    }
+
+    /**
+     * @return the indexes of the cars recorded as retired
+     */
+    public Set<Integer> getRetiredCarIndexes() {
+        return Collections.unmodifiableSet(retiredCars);
+    }
+
+    /**
+     * Registers the sources of reservations used for snapshots. Until this
+     * is set, the log simply keeps growing.
+     *
+     * @param liveState     supplies the current live reservations
+     * @param archivedState supplies the reservations archived so far
+     */
+    public void attach(Supplier<? extends Collection<Reservation>> liveState,
+            Supplier<? extends Collection<Reservation>> archivedState) {
+        this.archivedState = archivedState;
+        this.liveState = liveState;
+    }
+
+    /**
+     * Durably records a new reservation. Returns once the event is on disk.
+     *
+     * @param reservation the reservation that was created
+     * @throws UncheckedIOException if the event could not be written
+     */
+    public void recordReserved(Reservation reservation) {
+        appendReserved(reservation).await();
+    }
+
+    /**
+     * Durably records a group of new reservations with a single fsync.
+     *
+     * @param reservations the reservations that were created
+     * @throws UncheckedIOException if the events could not be written
+     */
+    public void recordReserved(List<Reservation> reservations) {
+        appendReserved(reservations).await();
+    }
+
+    /**
+     * Queues a new reservation for the log without waiting for it to reach
+     * disk, fixing its place in the log. Mark it applied as soon as it is
+     * in the live state, then await it.
+     *
+     * @param reservation the reservation that was created
+     * @return the queued write, to await before reporting the booking
+     * @throws IllegalStateException if the journal is closed
+     */
+    public PendingWrite appendReserved(Reservation reservation) {
+        return enqueue(Write.unapplied(new ByteBuffer[] { encodeReserved(reservation) }));
+    }
+
+    /**
+     * Queues a group of new reservations for the log, to be forced to disk
+     * together, without waiting for them.
+     *
+     * @param reservations the reservations that were created
+     * @return the queued write, to await before reporting the bookings
+     * @throws IllegalStateException if the journal is closed
+     */
+    public PendingWrite appendReserved(List<Reservation> reservations) {
+        if (reservations.isEmpty()) {
+            return PendingWrite.NONE;
+        }
+        ByteBuffer[] data = new ByteBuffer[reservations.size()];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = encodeReserved(reservations.get(i));
+        }
+        return enqueue(Write.unapplied(data));
+    }
+
+    /**
+     * Durably records a cancellation. Returns once the event is on disk.
+     *
+     * @param reservationId the id of the cancelled reservation
+     * @throws UncheckedIOException if the event could not be written
+     */
+    public void recordCancelled(long reservationId) {
+        submit(new Write(new ByteBuffer[] { encodeCancelled(reservationId) }));
+    }
+
+    /**
+     * Durably records a group of cancellations with a single fsync.
+     *
+     * @param reservationIds the ids of the cancelled reservations
+     * @throws UncheckedIOException if the events could not be written
+     */
+    public void recordCancelled(List<Long> reservationIds) {
+        if (reservationIds.isEmpty()) {
+            return;
+        }
+        ByteBuffer[] data = new ByteBuffer[reservationIds.size()];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = encodeCancelled(reservationIds.get(i));
+        }
+        submit(new Write(data));
+    }
+
+    /**
+     * Durably records reservations moved out of the live state into the
+     * archive, with a single fsync. Each record carries the whole booking,
+     * so it is restored into the archive even if a snapshot taken while it
+     * was being moved holds it in neither place.
+     *
+     * @param reservations the archived reservations
+     * @throws UncheckedIOException if the events could not be written
+     */
+    public void recordArchived(List<Reservation> reservations) {
+        if (reservations.isEmpty()) {
+            return;
+        }
+        ByteBuffer[] data = new ByteBuffer[reservations.size()];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = encodeReservation(ARCHIVED, reservations.get(i));
+        }
+        submit(new Write(data));
+    }
+
+    /**
+     * Durably records a car added to the fleet, before any booking on it
+     * can be recorded.
+     *
+     * @param car the new car
+     * @throws UncheckedIOException if the event could not be written
+     */
+    public void recordCarAdded(Car car) {
+        recordCarsAdded(List.of(car));
+    }
+
+    /**
+     * Durably records a group of cars added to the fleet with a single
+     * fsync, e.g. the configured inventory the first time the journal is
+     * used.
+     *
+     * @param cars the new cars
+     * @throws UncheckedIOException if the events could not be written
+     */
+    public void recordCarsAdded(List<Car> cars) {
+        if (cars.isEmpty()) {
+            return;
+        }
+        ByteBuffer[] data = new ByteBuffer[cars.size()];
+        for (int i = 0; i < data.length; i++) {
+            Car car = cars.get(i);
+            data[i] = encodeCarAdded(car.getIndex(), car.getType());
+        }
+        // into the snapshotted fleet only once on disk, so a failed write
+        // can't reach a later snapshot
+        submit(new Write(data, () -> cars.forEach(car -> addedCars.put(car.getIndex(), car.getType()))));
+    }
+
+    /**
+     * Durably records a car taken out of the fleet.
+     *
+     * @param carIndex the index of the retired car
+     * @throws UncheckedIOException if the event could not be written
+     */
+    public void recordCarRetired(int carIndex) {
+        submit(new Write(new ByteBuffer[] { encodeCarRetired(carIndex) }, () -> retiredCars.add(carIndex)));
+    }
+
+    /**
+     * Durably records that a reservation moved to another car. One record
+     * carries the whole move, so a crash can't lose the booking halfway.
+     *
+     * @param reservation the reservation as it is now, on its new car
+     * @throws UncheckedIOException if the event could not be written
+     */
+    public void recordReassigned(Reservation reservation) {
+        submit(new Write(new ByteBuffer[] { encodeReassigned(reservation) }));
+    }
+
+    /**
+     * Writes a snapshot of the live reservations now and truncates the log.
+     *
+     * @throws IllegalStateException if no live state has been attached
+     * @throws UncheckedIOException  if the snapshot could not be written
+     */
+    public void compact() {
+        if (liveState == null) {
+            throw new IllegalStateException("No live state attached to the journal");
+        }
+        submit(Write.compaction());
+    }
+
+    /**
+     * Flushes pending events and closes the log file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Write close = Write.close();
+        queue.add(close);
+        try {
+            close.done.join();
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            log.close();
+        }
+    }
+
+    private void submit(Write write) {
+        enqueue(write).await();
+    }
+
+    private Write enqueue(Write write) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        queue.add(write);
+        return write;
+    }
+
+    /**
+     * @return false while the last failed write could not be cut back out
+     *         of the log, so writes are being refused
+     */
+    public boolean isHealthy() {
+        return failure == null;
+    }
+
+    /**
+     * Writer thread: drains whatever has queued up, writes it in one go and
+     * forces it to disk once for the whole batch.
+     */
+    private void runWriter() {
+        List<Write> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch);
+
+            boolean compact = false;
+            long events = 0;
+            for (Write write : batch) {
+                if (write.data != null) {
+                    events += write.data.length;
+                }
+                compact |= write.kind == Write.COMPACT;
+                running &= write.kind != Write.CLOSE;
+            }
+            try {
+                if (events > 0 || compact) {
+                    if (failure != null) {
+                        cutBack(failure);
+                    }
+                    if (failure != null) {
+                        throw failure;
+                    }
+                }
+                if (events > 0) {
+                    for (Write write : batch) {
+                        if (write.data != null) {
+                            writeFully(write.data);
+                        }
+                    }
+                    log.force(false);
+                    durableEnd = log.position();
+                    eventsSinceSnapshot += events;
+                }
+            } catch (IOException e) {
+                if (events > 0 && failure == null) {
+                    cutBack(e);
+                }
+                batch.forEach(write -> write.done.completeExceptionally(e));
+                batch.clear();
+                continue;
+            }
+            for (Write write : batch) {
+                if (write.written != null) {
+                    write.written.run();
+                }
+            }
+            unapplied.removeIf(write -> write.applied);
+            for (Write write : batch) {
+                if (!write.applied) {
+                    unapplied.add(write);
+                }
+            }
+            IOException snapshotFailure = null;
+            if (liveState != null && (compact || eventsSinceSnapshot >= snapshotInterval)) {
+                try {
+                    awaitApplied();
+                    writeSnapshot();
+                } catch (IOException e) {
+                    // the log still holds everything; only a compaction asked for this
+                    LOG.log(System.Logger.Level.WARNING, "Reservation snapshot failed", e);
+                    snapshotFailure = e;
+                }
+            }
+            for (Write write : batch) {
+                if (write.kind == Write.COMPACT && snapshotFailure != null) {
+                    write.done.completeExceptionally(snapshotFailure);
+                } else {
+                    write.done.complete(null);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Cuts a failed batch's partial writes back out of the log, so the next
+     * batch appends right after the last one that reached disk. Marks the
+     * journal failed while that can't be done, and healthy again once it is.
+     */
+    private void cutBack(IOException cause) {
+        try {
+            log.truncate(durableEnd);
+            log.position(durableEnd);
+            log.force(true);
+            if (failure != null) {
+                LOG.log(System.Logger.Level.INFO, "Reservation journal recovered");
+            }
+            failure = null;
+        } catch (IOException e) {
+            if (failure == null) {
+                LOG.log(System.Logger.Level.ERROR, "Reservation journal failed; refusing writes until it recovers",
+                        cause);
+            }
+            failure = cause;
+        }
+    }
+
+    /**
+     * Waits until every booking already logged is in the live state. The
+     * caller applies it right after queueing it, so this is a short wait,
+     * parked rather than spinning.
+     */
+    private void awaitApplied() {
+        Thread self = Thread.currentThread();
+        for (Write write : unapplied) {
+            write.waiter = self;
+            while (!write.applied) {
+                LockSupport.park(this);
+            }
+        }
+        unapplied.clear();
+    }
+
+    private void writeFully(ByteBuffer[] data) throws IOException {
+        long remaining = 0;
+        for (ByteBuffer buffer : data) {
+            remaining += buffer.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= log.write(data);
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        // archived first: a booking archived in between is then in neither
+        // list rather than both, and its own record brings it back
+        Collection<Reservation> archive = archivedState.get();
+        Collection<Reservation> live = liveState.get();
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            for (Map.Entry<Integer, CarType> car : addedCars.entrySet()) {
+                ByteBuffer record = encodeCarAdded(car.getKey(), car.getValue());
+                out.write(record.array(), 0, record.limit());
+            }
+            for (int carIndex : retiredCars) {
+                ByteBuffer record = encodeCarRetired(carIndex);
+                out.write(record.array(), 0, record.limit());
+            }
+            for (Reservation reservation : archive) {
+                ByteBuffer record = encodeReservation(ARCHIVED, reservation);
+                out.write(record.array(), 0, record.limit());
+            }
+            for (Reservation reservation : live) {
+                ByteBuffer record = encodeReservation(RESERVED, reservation);
+                out.write(record.array(), 0, record.limit());
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.truncate(0);
+        log.force(true);
+        durableEnd = 0;
+        eventsSinceSnapshot = 0;
+    }
+
+    private void readSnapshot(Path snapshot) throws IOException {
+        if (!Files.exists(snapshot)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < 8 || in.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Unrecognised reservation snapshot " + snapshot);
+            }
+            int version = in.getInt();
+            if (version < OLDEST_READABLE_VERSION || version > FORMAT_VERSION) {
+                throw new IOException("Unsupported reservation snapshot version " + version + " in " + snapshot);
+            }
+            while (in.hasRemaining()) {
+                if (!readRecord(in)) {
+                    throw new IOException("Corrupt reservation snapshot " + snapshot);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the offset just past the last intact record
+     */
+    private long replayLog(FileChannel channel) throws IOException {
+        ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        while (readRecord(in)) {
+            // keep applying until the end or the first torn record
+        }
+        return in.position();
+    }
+
+    /**
+     * Applies one record to the recovered state. Replaying a reservation
+     * that is already present, or cancelling or moving one that is not, is
+     * a no-op.
+     *
+     * @return false at the end of the buffer or on a torn/corrupt record,
+     *         leaving the position at the start of that record
+     */
+    private boolean readRecord(ByteBuffer in) {
+        int start = in.position();
+        if (in.remaining() < RECORD_HEADER) {
+            return false;
+        }
+        int length = in.getInt(start);
+        int checksum = in.getInt(start + 4);
+        if (length <= 0 || length > in.remaining() - RECORD_HEADER) {
+            return false;
+        }
+        ByteBuffer payload = in.duplicate();
+        payload.position(start + RECORD_HEADER).limit(start + RECORD_HEADER + length);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            return false;
+        }
+
+        byte kind = payload.get();
+        if (kind == RESERVED) {
+            Reservation reservation = decodeReservation(payload);
+            recovered.putIfAbsent(reservation.getNumericId(), reservation);
+        } else if (kind == ARCHIVED) {
+            Reservation reservation = decodeReservation(payload);
+            recovered.remove(reservation.getNumericId());
+            recoveredArchive.putIfAbsent(reservation.getNumericId(), reservation);
+        } else if (kind == CANCELLED) {
+            recovered.remove(payload.getLong());
+        } else if (kind == CAR_ADDED) {
+            int carIndex = payload.getInt();
+            addedCars.put(carIndex, CAR_TYPES[payload.get()]);
+        } else if (kind == CAR_RETIRED) {
+            retiredCars.add(payload.getInt());
+        } else if (kind == REASSIGNED) {
+            long id = payload.getLong();
+            int carIndex = payload.getInt();
+            recovered.computeIfPresent(id, (key, r) -> new Reservation(id, carIndex, r.getCarType(), r.getStart(),
+                    r.getNumberOfDays()));
+        } else {
+            return false;
+        }
+        in.position(start + RECORD_HEADER + length);
+        return true;
+    }
+
+    private static Reservation decodeReservation(ByteBuffer payload) {
+        long id = payload.getLong();
+        int carIndex = payload.getInt();
+        CarType type = CAR_TYPES[payload.get()];
+        long startSecond = payload.getLong();
+        int nano = payload.getInt();
+        int days = payload.getInt();
+        return new Reservation(id, carIndex, type, LocalDateTime.ofEpochSecond(startSecond, nano, ZoneOffset.UTC),
+                days);
+    }
+
+    private static ByteBuffer encodeReserved(Reservation reservation) {
+        return encodeReservation(RESERVED, reservation);
+    }
+
+    private static ByteBuffer encodeReservation(byte kind, Reservation reservation) {
+        int length = 1 + 8 + 4 + 1 + 8 + 4 + 4;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + length);
+        record.position(RECORD_HEADER);
+        record.put(kind);
+        record.putLong(reservation.getNumericId());
+        record.putInt(reservation.getCarIndex());
+        record.put((byte) reservation.getCarType().ordinal());
+        record.putLong(reservation.getStartEpochSecond());
+        record.putInt(reservation.getStart().getNano());
+        record.putInt(reservation.getNumberOfDays());
+        return seal(record, length);
+    }
+
+    private static ByteBuffer encodeCancelled(long reservationId) {
+        int length = 1 + 8;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + length);
+        record.position(RECORD_HEADER);
+        record.put(CANCELLED);
+        record.putLong(reservationId);
+        return seal(record, length);
+    }
+
+    private static ByteBuffer encodeCarAdded(int carIndex, CarType type) {
+        int length = 1 + 4 + 1;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + length);
+        record.position(RECORD_HEADER);
+        record.put(CAR_ADDED);
+        record.putInt(carIndex);
+        record.put((byte) type.ordinal());
+        return seal(record, length);
+    }
+
+    private static ByteBuffer encodeCarRetired(int carIndex) {
+        int length = 1 + 4;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + length);
+        record.position(RECORD_HEADER);
+        record.put(CAR_RETIRED);
+        record.putInt(carIndex);
+        return seal(record, length);
+    }
+
+    private static ByteBuffer encodeReassigned(Reservation reservation) {
+        int length = 1 + 8 + 4;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + length);
+        record.position(RECORD_HEADER);
+        record.put(REASSIGNED);
+        record.putLong(reservation.getNumericId());
+        record.putInt(reservation.getCarIndex());
+        return seal(record, length);
+    }
+
+    private static ByteBuffer seal(ByteBuffer record, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER, length);
+        record.putInt(0, length);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    /**
+     * Events queued for the log, in their final place in it.
+     */
+    public interface PendingWrite {
+
+        PendingWrite NONE = () -> {
+        };
+
+        /**
+         * Waits until the events are on disk.
+         *
+         * @throws UncheckedIOException if they could not be written
+         */
+        void await();
+
+        /**
+         * Tells the journal the bookings are now in the live state it
+         * snapshots, or were rolled back. Snapshots wait for this.
+         */
+        default void applied() {
+        }
+    }
+
+    /**
+     * A unit of work for the writer thread.
+     */
+    private static final class Write implements PendingWrite {
+        static final int EVENTS = 0;
+        static final int COMPACT = 1;
+        static final int CLOSE = 2;
+
+        final ByteBuffer[] data;
+        final int kind;
+        // run by the writer once the data is on disk, before any snapshot
+        final Runnable written;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        volatile boolean applied = true;
+        // the writer thread parked until this is applied, if any
+        volatile Thread waiter;
+
+        Write(ByteBuffer[] data) {
+            this(data, EVENTS, null);
+        }
+
+        Write(ByteBuffer[] data, Runnable written) {
+            this(data, EVENTS, written);
+        }
+
+        private Write(ByteBuffer[] data, int kind, Runnable written) {
+            this.data = data;
+            this.kind = kind;
+            this.written = written;
+        }
+
+        static Write unapplied(ByteBuffer[] data) {
+            Write write = new Write(data);
+            write.applied = false;
+            return write;
+        }
+
+        @Override
+        public void applied() {
+            applied = true;
+            Thread parked = waiter;
+            if (parked != null) {
+                LockSupport.unpark(parked);
+            }
+        }
+
+        static Write compaction() {
+            return new Write(null, COMPACT, null);
+        }
+
+        static Write close() {
+            return new Write(null, CLOSE, null);
+        }
+
+        @Override
+        public void await() {
+            try {
+                done.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw new UncheckedIOException((IOException) e.getCause());
+                }
+                throw e;
+            }
+        }
+    }
+}
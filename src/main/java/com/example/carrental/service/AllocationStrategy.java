@@ -0,0 +1,26 @@
+package com.example.carrental.service;
+
+/**
+ * How the service picks which free car of a type takes a new booking.
+ */
+public enum AllocationStrategy {
+    /**
+     * The free car with the lowest index. Cheapest, but scatters bookings
+     * and tends to leave gaps too short to sell.
+     */
+    FIRST_FIT,
+    /**
+     * The car whose free gap around the requested window is the shortest
+     * that still fits it, keeping long gaps open for long rentals.
+     */
+    BEST_FIT,
+    /**
+     * The free car that was booked least recently, spreading wear across
+     * the fleet.
+     */
+    LEAST_RECENTLY_USED,
+    /**
+     * The free car with the least booked time on its schedule.
+     */
+    LOAD_BALANCED
+}
@@ -0,0 +1,56 @@
+package com.example.carrental.service;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * A list that only grows, stored in fixed-size chunks so that appending
+ * never copies the elements already in it, only an occasional spine of
+ * chunk pointers one thousandth its size.
+ *
+ * Appends must be serialized by the caller. Reads take no locks: an element
+ * is written into its chunk before the volatile size is raised past it, so
+ * any reader that sees the new size also sees the element. Iteration
+ * reflects every element appended before it began, and may or may not
+ * see ones appended while it runs.
+ */
+final class AppendOnlyList<E> extends AbstractList<E> implements RandomAccess {
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private volatile Object[][] chunks = new Object[1][];
+    private volatile int size;
+
+    @Override
+    public boolean add(E element) {
+        int index = size;
+        int chunk = index >>> CHUNK_BITS;
+        Object[][] spine = chunks;
+        if (chunk == spine.length) {
+            spine = Arrays.copyOf(spine, spine.length * 2);
+        }
+        if (spine[chunk] == null) {
+            spine[chunk] = new Object[CHUNK_SIZE];
+        }
+        spine[chunk][index & (CHUNK_SIZE - 1)] = element;
+        chunks = spine;
+        size = index + 1;
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return (E) chunks[index >>> CHUNK_BITS][index & (CHUNK_SIZE - 1)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.carrental.service;
+
+import com.example.carrental.domain.CarType;
+import com.example.carrental.metrics.ServiceMetrics;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of availability counts, keyed by car type and window.
+ *
+ * Writers must call {@link #invalidate} after changing a car's bookings
+ * and before returning to their caller. It drops only the entries of that
+ * type whose window overlaps the changed booking, so unrelated popular
+ * windows stay cached. Entries are ordered by window start, and no cached
+ * window is longer than the longest one ever stored, so an invalidation
+ * only visits windows starting within that distance of the booking.
+ *
+ * A count computed while a booking changes could otherwise be cached after
+ * the invalidation that should have removed it. To rule that out, each
+ * type has an epoch that every invalidation bumps before it drops entries.
+ * A count is stored only if the epoch is unchanged since before it was
+ * computed, and is taken back out if the epoch moved while it went in.
+ *
+ * Nothing here takes a lock: bookings of one type share only the epoch
+ * counter and the entries they actually overlap. When the cache is full an
+ * entry is evicted by a clock sweep, an approximation of least recently
+ * used: every hit marks its entry, and a hand moving through the windows
+ * clears marks as it passes and evicts the first unmarked entry it meets.
+ * A window read since the hand last passed it survives the next eviction.
+ */
+class AvailabilityCache {
+
+    private static final Comparator<Window> BY_START =
+            Comparator.comparingLong(Window::start).thenComparingLong(Window::end);
+    // entries a sweep may pass before evicting one even if it was marked,
+    // so an eviction stays bounded when every entry is hot
+    private static final int SWEEP_LIMIT = 16;
+
+    private final Segment[] segments = new Segment[CarType.values().length];
+    private final int capacityPerType;
+    private final ServiceMetrics metrics;
+
+    AvailabilityCache(int capacityPerType, ServiceMetrics metrics) {
+        this.capacityPerType = capacityPerType;
+        this.metrics = metrics;
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * @return the cached count, or -1 if the window is not cached
+     */
+    int get(CarType type, long start, long end) {
+        Entry entry = segments[type.ordinal()].entries.get(new Window(start, end));
+        if (entry == null) {
+            metrics.recordCacheMiss();
+            return -1;
+        }
+        metrics.recordCacheHit();
+        if (!entry.referenced) {
+            // written only when clear, so hot entries are not written on every hit
+            entry.referenced = true;
+        }
+        return entry.available;
+    }
+
+    /**
+     * @return a token to pass to {@link #put} once the count is computed
+     */
+    long epoch(CarType type) {
+        return segments[type.ordinal()].epoch.get();
+    }
+
+    /**
+     * Caches a count unless the type's bookings changed since
+     * {@code epoch} was read, in which case the count may be stale.
+     */
+    void put(CarType type, long start, long end, int available, long epoch) {
+        Segment segment = segments[type.ordinal()];
+        if (segment.epoch.get() != epoch) {
+            return;
+        }
+        segment.widen(end - start);
+        Window window = new Window(start, end);
+        Entry value = new Entry(available);
+        if (segment.entries.put(window, value) == null && segment.size.incrementAndGet() > capacityPerType) {
+            segment.evictOne();
+        }
+        // an invalidation that bumped the epoch may have scanned before the
+        // entry went in, so it is this put's job to take it back out
+        if (segment.epoch.get() != epoch) {
+            segment.remove(window, value);
+        }
+    }
+
+    /**
+     * Drops every cached window of the type overlapping {@code [start, end)}.
+     */
+    void invalidate(CarType type, long start, long end) {
+        Segment segment = segments[type.ordinal()];
+        segment.epoch.incrementAndGet();
+        if (segment.size.get() == 0) {
+            return;
+        }
+        long from = start - segment.maxLength;
+        if (from > start) {
+            // underflowed; scan from the very first window
+            from = Long.MIN_VALUE;
+        }
+        ConcurrentNavigableMap<Window, Entry> candidates = end == Long.MAX_VALUE
+                ? segment.entries.tailMap(new Window(from, Long.MIN_VALUE), true)
+                : segment.entries.subMap(new Window(from, Long.MIN_VALUE), true, new Window(end, Long.MIN_VALUE), true);
+        int removed = 0;
+        for (Iterator<Map.Entry<Window, Entry>> it = candidates.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Window, Entry> entry = it.next();
+            Window window = entry.getKey();
+            if (window.start < end && window.end > start && segment.remove(window, entry.getValue())) {
+                removed++;
+            }
+        }
+        metrics.recordCacheInvalidations(removed);
+    }
+
+    /**
+     * Drops every cached window of the type, e.g. when its pool changes size.
+     */
+    void invalidateAll(CarType type) {
+        invalidate(type, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    private record Window(long start, long end) {
+    }
+
+    /**
+     * A cached count. Compared by identity, so a put can take back exactly
+     * the entry it stored.
+     */
+    private static final class Entry {
+        final int available;
+        // set by hits, cleared by the eviction hand
+        volatile boolean referenced;
+
+        Entry(int available) {
+            this.available = available;
+        }
+    }
+
+    private final class Segment {
+        final AtomicLong epoch = new AtomicLong();
+        final ConcurrentSkipListMap<Window, Entry> entries = new ConcurrentSkipListMap<>(BY_START);
+        // kept apart from the map, whose size() walks every entry
+        final AtomicInteger size = new AtomicInteger();
+        // longest window ever stored, so an invalidation knows how far
+        // before a booking an overlapping window can start
+        volatile long maxLength;
+        // window the last sweep stopped after; a race between sweeps only
+        // makes one of them revisit a few entries
+        volatile Window hand;
+
+        void widen(long length) {
+            if (length > maxLength) {
+                synchronized (this) {
+                    maxLength = Math.max(maxLength, length);
+                }
+            }
+        }
+
+        boolean remove(Window window, Entry value) {
+            if (entries.remove(window, value)) {
+                size.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        void evictOne() {
+            Map.Entry<Window, Entry> victim = null;
+            Window from = hand;
+            for (int passed = 0; passed <= SWEEP_LIMIT; passed++) {
+                Map.Entry<Window, Entry> next = from == null ? entries.firstEntry() : entries.higherEntry(from);
+                if (next == null) {
+                    if (from == null) {
+                        return;
+                    }
+                    // wrap around to the earliest window
+                    from = null;
+                    continue;
+                }
+                from = next.getKey();
+                victim = next;
+                if (!next.getValue().referenced) {
+                    break;
+                }
+                next.getValue().referenced = false;
+            }
+            hand = from;
+            if (victim != null && remove(victim.getKey(), victim.getValue())) {
+                metrics.recordCacheEviction();
+            }
+        }
+    }
+}
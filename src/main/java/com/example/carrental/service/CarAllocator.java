@@ -0,0 +1,499 @@
+package com.example.carrental.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-pool index that orders the cars of one type by preference for a
+ * booking, according to an {@link AllocationStrategy}.
+ *
+ * The index is kept up to date by {@link CarSchedule}, which reports every
+ * booking and release while holding that car's lock. Different cars update
+ * concurrently, so every index is a concurrent skip list and a lookup is a
+ * walk from the head in preference order, usually stopping within the
+ * first few entries instead of visiting the whole pool.
+ *
+ * Candidates are only a hint: a car may be booked between the lookup and
+ * the claim, so callers still check and claim under the car's lock and move
+ * on to the next candidate if that fails.
+ */
+abstract class CarAllocator {
+
+    static CarAllocator create(AllocationStrategy strategy) {
+        return switch (strategy) {
+            case FIRST_FIT -> new FirstFit();
+            case BEST_FIT -> new BestFit();
+            case LEAST_RECENTLY_USED -> new KeyedAllocator(true);
+            case LOAD_BALANCED -> new KeyedAllocator(false);
+        };
+    }
+
+    /**
+     * Adds an empty car to the pool.
+     */
+    abstract void register(CarSchedule schedule);
+
+    /**
+     * @param start the window start in epoch seconds
+     * @param end   the window end in epoch seconds
+     * @return cars in order of preference for the window; may include cars
+     *         that turn out to be busy, and for best-fit omits cars with no
+     *         single gap covering the window
+     */
+    abstract Iterator<CarSchedule> candidates(List<CarSchedule> pool, long start, long end);
+
+    /**
+     * Called under the car's lock when {@code [start, end)} is booked out of
+     * the free gap {@code [gapStart, gapEnd)}. Unbounded gap edges are
+     * {@link Long#MIN_VALUE} and {@link Long#MAX_VALUE}.
+     */
+    abstract void booked(CarSchedule schedule, long gapStart, long gapEnd, long start, long end);
+
+    /**
+     * Called under the car's lock when {@code [start, end)} is released,
+     * merging into the free gap {@code [gapStart, gapEnd)}.
+     */
+    abstract void released(CarSchedule schedule, long gapStart, long gapEnd, long start, long end);
+
+    /**
+     * Called under the car's lock when it leaves the fleet, with its free
+     * gaps at that moment. The car is never reported again.
+     */
+    abstract void retired(CarSchedule schedule, long[] gapStarts, long[] gapEnds);
+
+    /**
+     * One entry of an ordered index: a car with a sort key and, for gaps,
+     * the free interval it stands for. A car has at most one entry per key
+     * in any one index.
+     */
+    private static final class Slot {
+        static final Comparator<Slot> ORDER = Comparator.<Slot>comparingLong(s -> s.key)
+                .thenComparingInt(s -> s.index);
+
+        final long key;
+        final long start;
+        final long end;
+        final CarSchedule schedule;
+        final int index;
+
+        Slot(long key, long start, long end, CarSchedule schedule) {
+            this(key, start, end, schedule, schedule.getCar().getIndex());
+        }
+
+        private Slot(long key, long start, long end, CarSchedule schedule, int index) {
+            this.key = key;
+            this.start = start;
+            this.end = end;
+            this.schedule = schedule;
+            this.index = index;
+        }
+
+        // search bounds sorting before and after every entry with the key
+        static Slot before(long key) {
+            return new Slot(key, 0, 0, null, Integer.MIN_VALUE);
+        }
+
+        static Slot after(long key) {
+            return new Slot(key, 0, 0, null, Integer.MAX_VALUE);
+        }
+    }
+
+    private static final class FirstFit extends CarAllocator {
+        @Override
+        void register(CarSchedule schedule) {
+        }
+
+        @Override
+        Iterator<CarSchedule> candidates(List<CarSchedule> pool, long start, long end) {
+            return pool.iterator();
+        }
+
+        @Override
+        void booked(CarSchedule schedule, long gapStart, long gapEnd, long start, long end) {
+        }
+
+        @Override
+        void released(CarSchedule schedule, long gapStart, long gapEnd, long start, long end) {
+        }
+
+        @Override
+        void retired(CarSchedule schedule, long[] gapStarts, long[] gapEnds) {
+        }
+    }
+
+    /**
+     * Base for the strategies that keep their own index instead of walking
+     * the pool.
+     *
+     * An update moves a car from one entry to another, so a walk running at
+     * the same time can pass the new entry before it goes in and reach the
+     * old one after it is gone, missing a car that was free throughout. Each
+     * update is therefore counted as it begins and ends, and a walk that
+     * finds nothing is repeated if any update overlapped it. A miss costs a
+     * single walk while the pool is quiet; under constant churn the walk is
+     * repeated at most {@link #MAX_WALKS} times, after which the miss stands.
+     * The counts are striped adders, so bookings on different cars don't
+     * contend on them; only a walk that found nothing sums them.
+     */
+    private abstract static class IndexedAllocator extends CarAllocator {
+        static final int MAX_WALKS = 3;
+
+        private final LongAdder begun = new LongAdder();
+        private final LongAdder ended = new LongAdder();
+
+        /**
+         * @return cars in preference order for the window, from a single
+         *         pass over the index
+         */
+        abstract Iterator<CarSchedule> walk(long start, long end);
+
+        abstract void add(CarSchedule schedule);
+
+        abstract void book(CarSchedule schedule, long gapStart, long gapEnd, long start, long end);
+
+        abstract void release(CarSchedule schedule, long gapStart, long gapEnd, long start, long end);
+
+        abstract void retire(CarSchedule schedule, long[] gapStarts, long[] gapEnds);
+
+        @Override
+        final void register(CarSchedule schedule) {
+            begun.increment();
+            try {
+                add(schedule);
+            } finally {
+                ended.increment();
+            }
+        }
+
+        @Override
+        final void booked(CarSchedule schedule, long gapStart, long gapEnd, long start, long end) {
+            begun.increment();
+            try {
+                book(schedule, gapStart, gapEnd, start, end);
+            } finally {
+                ended.increment();
+            }
+        }
+
+        @Override
+        final void released(CarSchedule schedule, long gapStart, long gapEnd, long start, long end) {
+            begun.increment();
+            try {
+                release(schedule, gapStart, gapEnd, start, end);
+            } finally {
+                ended.increment();
+            }
+        }
+
+        @Override
+        final void retired(CarSchedule schedule, long[] gapStarts, long[] gapEnds) {
+            begun.increment();
+            try {
+                retire(schedule, gapStarts, gapEnds);
+            } finally {
+                ended.increment();
+            }
+        }
+
+        @Override
+        final Iterator<CarSchedule> candidates(List<CarSchedule> pool, long start, long end) {
+            return new Iterator<>() {
+                private int walks = 1;
+                private long stamp = stamp();
+                private Iterator<CarSchedule> walk = walk(start, end);
+
+                @Override
+                public boolean hasNext() {
+                    while (!walk.hasNext()) {
+                        if (stamp >= 0 && begun.sum() == stamp || walks == MAX_WALKS) {
+                            return false;
+                        }
+                        walks++;
+                        stamp = stamp();
+                        walk = walk(start, end);
+                    }
+                    return true;
+                }
+
+                @Override
+                public CarSchedule next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return walk.next();
+                }
+            };
+        }
+
+        /**
+         * @return the number of updates begun, or -1 if one is in progress
+         */
+        private long stamp() {
+            long stamp = begun.sum();
+            return ended.sum() == stamp ? stamp : -1;
+        }
+    }
+
+    /**
+     * Indexes every free gap of every car so that the gaps containing a
+     * window can be found without visiting the others.
+     *
+     * Bounded gaps are split into bands by length, four per power of two,
+     * and ordered by start within a band. A gap of a band can only contain
+     * the window if it starts no later than the window and no earlier than
+     * the band's longest length before its end, so each band is searched
+     * over that range alone. Bands are visited shortest first, which keeps
+     * the fit within a quarter of the best one.
+     *
+     * Gaps open at either end count as infinitely long, so they are only
+     * used once no bounded gap fits: first those open at the start, by end,
+     * with cars that have no bookings at all after them, then those open
+     * only at the end, by start.
+     */
+    private static final class BestFit extends IndexedAllocator {
+        private static final int BANDS = 4 * Long.SIZE;
+
+        private final List<ConcurrentSkipListSet<Slot>> bands = new ArrayList<>(BANDS);
+        // gaps open at the start, keyed by end
+        private final ConcurrentSkipListSet<Slot> leading = new ConcurrentSkipListSet<>(Slot.ORDER);
+        // gaps open only at the end, keyed by start
+        private final ConcurrentSkipListSet<Slot> trailing = new ConcurrentSkipListSet<>(Slot.ORDER);
+
+        BestFit() {
+            for (int i = 0; i < BANDS; i++) {
+                bands.add(new ConcurrentSkipListSet<>(Slot.ORDER));
+            }
+        }
+
+        @Override
+        void add(CarSchedule schedule) {
+            addGap(schedule, Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+
+        @Override
+        Iterator<CarSchedule> walk(long start, long end) {
+            return new Iterator<>() {
+                private int band = band(end - start);
+                private Iterator<Slot> gaps = Collections.emptyIterator();
+                private Slot next = advance();
+
+                private Slot advance() {
+                    while (true) {
+                        while (gaps.hasNext()) {
+                            Slot gap = gaps.next();
+                            if (gap.end >= end) {
+                                return gap;
+                            }
+                        }
+                        if (band < BANDS) {
+                            gaps = search(band++, start, end);
+                        } else if (band == BANDS) {
+                            band++;
+                            gaps = leading.tailSet(Slot.before(end), true).iterator();
+                        } else if (band == BANDS + 1) {
+                            band++;
+                            gaps = trailing.headSet(Slot.after(start), true).iterator();
+                        } else {
+                            return null;
+                        }
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public CarSchedule next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    CarSchedule schedule = next.schedule;
+                    next = advance();
+                    return schedule;
+                }
+            };
+        }
+
+        /**
+         * @return the gaps of the band that start in time to contain the
+         *         window, though not necessarily ending late enough
+         */
+        private Iterator<Slot> search(int band, long start, long end) {
+            ConcurrentSkipListSet<Slot> gaps = bands.get(band);
+            if (gaps.isEmpty()) {
+                return Collections.emptyIterator();
+            }
+            long limit = limit(band);
+            long from = end - limit < end ? end - limit + 1 : Long.MIN_VALUE;
+            return gaps.subSet(Slot.before(from), true, Slot.after(start), true).iterator();
+        }
+
+        @Override
+        void book(CarSchedule schedule, long gapStart, long gapEnd, long start, long end) {
+            removeGap(schedule, gapStart, gapEnd);
+            addGap(schedule, gapStart, start);
+            addGap(schedule, end, gapEnd);
+        }
+
+        @Override
+        void release(CarSchedule schedule, long gapStart, long gapEnd, long start, long end) {
+            removeGap(schedule, gapStart, start);
+            removeGap(schedule, end, gapEnd);
+            addGap(schedule, gapStart, gapEnd);
+        }
+
+        @Override
+        void retire(CarSchedule schedule, long[] gapStarts, long[] gapEnds) {
+            for (int i = 0; i < gapStarts.length; i++) {
+                removeGap(schedule, gapStarts[i], gapEnds[i]);
+            }
+        }
+
+        private void addGap(CarSchedule schedule, long start, long end) {
+            if (start < end) {
+                gaps(start, end).add(gap(schedule, start, end));
+            }
+        }
+
+        private void removeGap(CarSchedule schedule, long start, long end) {
+            if (start < end) {
+                gaps(start, end).remove(gap(schedule, start, end));
+            }
+        }
+
+        private ConcurrentSkipListSet<Slot> gaps(long start, long end) {
+            if (start == Long.MIN_VALUE) {
+                return leading;
+            }
+            return end == Long.MAX_VALUE ? trailing : bands.get(band(end - start));
+        }
+
+        private static Slot gap(CarSchedule schedule, long start, long end) {
+            return new Slot(start == Long.MIN_VALUE ? end : start, start, end, schedule);
+        }
+
+        private static int band(long length) {
+            int log = 63 - Long.numberOfLeadingZeros(length);
+            return log < 2 ? (int) length : 4 * log + (int) ((length >>> (log - 2)) & 3);
+        }
+
+        /**
+         * @return one more than the longest gap the band holds
+         */
+        private static long limit(int band) {
+            if (band < 4) {
+                return band + 1;
+            }
+            long limit = (long) (5 + band % 4) << (band / 4 - 2);
+            return limit > 0 ? limit : Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Orders cars by a single key per car: the time of its last booking for
+     * least-recently-used, or its total booked seconds for load-balanced.
+     *
+     * The key says nothing about whether a car is free for the window, so
+     * only the first {@link #KEY_BUDGET} cars in key order are tried. Past
+     * that the walk switches to a best-fit gap index of the same cars, which
+     * visits only cars whose free gaps start near the window. The pick is then
+     * no longer the best by key, but a miss costs the budget plus a gap
+     * search instead of a walk over the whole pool.
+     */
+    private static final class KeyedAllocator extends IndexedAllocator {
+        static final int KEY_BUDGET = 32;
+
+        private final boolean leastRecentlyUsed;
+        private final ConcurrentSkipListSet<Slot> order = new ConcurrentSkipListSet<>(Slot.ORDER);
+        private final Map<CarSchedule, Slot> current = new ConcurrentHashMap<>();
+        private final BestFit gaps = new BestFit();
+
+        KeyedAllocator(boolean leastRecentlyUsed) {
+            this.leastRecentlyUsed = leastRecentlyUsed;
+        }
+
+        @Override
+        void add(CarSchedule schedule) {
+            gaps.add(schedule);
+            rekey(schedule, 0);
+        }
+
+        @Override
+        Iterator<CarSchedule> walk(long start, long end) {
+            Iterator<Slot> slots = order.iterator();
+            return new Iterator<>() {
+                private int tried;
+                private Iterator<CarSchedule> fits;
+
+                @Override
+                public boolean hasNext() {
+                    if (fits == null) {
+                        if (tried < KEY_BUDGET && slots.hasNext()) {
+                            return true;
+                        }
+                        fits = gaps.walk(start, end);
+                    }
+                    return fits.hasNext();
+                }
+
+                @Override
+                public CarSchedule next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    if (fits == null) {
+                        tried++;
+                        return slots.next().schedule;
+                    }
+                    return fits.next();
+                }
+            };
+        }
+
+        @Override
+        void book(CarSchedule schedule, long gapStart, long gapEnd, long start, long end) {
+            gaps.book(schedule, gapStart, gapEnd, start, end);
+            // the clock rather than a shared counter, so bookings on
+            // different cars never write the same word
+            rekey(schedule, leastRecentlyUsed
+                    ? System.nanoTime()
+                    : current.get(schedule).key + (end - start));
+        }
+
+        @Override
+        void release(CarSchedule schedule, long gapStart, long gapEnd, long start, long end) {
+            gaps.release(schedule, gapStart, gapEnd, start, end);
+            if (!leastRecentlyUsed) {
+                rekey(schedule, current.get(schedule).key - (end - start));
+            }
+        }
+
+        @Override
+        void retire(CarSchedule schedule, long[] gapStarts, long[] gapEnds) {
+            gaps.retire(schedule, gapStarts, gapEnds);
+            Slot slot = current.remove(schedule);
+            if (slot != null) {
+                order.remove(slot);
+            }
+        }
+
+        private void rekey(CarSchedule schedule, long key) {
+            Slot slot = new Slot(key, 0, 0, schedule);
+            Slot previous = current.put(schedule, slot);
+            if (previous != null) {
+                order.remove(previous);
+            }
+            order.add(slot);
+        }
+    }
+}
@@ -1,34 +1,272 @@
 package com.example.carrental.service;
 
+import com.example.carrental.domain.BatchReservationResult;
 import com.example.carrental.domain.Car;
 import com.example.carrental.domain.CarType;
+import com.example.carrental.domain.IdGenerator;
 import com.example.carrental.domain.Reservation;
+import com.example.carrental.domain.ReservationPage;
+import com.example.carrental.domain.ReservationQuery;
+import com.example.carrental.domain.ReservationRequest;
+import com.example.carrental.events.ReservationEvent;
+import com.example.carrental.events.ReservationEventStream;
 import com.example.carrental.exception.NoAvailableCarException;
+import com.example.carrental.metrics.ServiceMetrics;
+import com.example.carrental.metrics.ServiceMetrics.Operation;
+import com.example.carrental.persistence.FleetSnapshot;
+import com.example.carrental.persistence.ReservationJournal;
+import com.example.carrental.persistence.ReservationJournal.PendingWrite;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
 /**
  * Service for managing car reservations in the rental system
  * Handles reservation creation, cancellation, and availability queries
- * Thread-safe implementation using CopyOnWriteArrayList
+ * Thread-safe: each car is claimed under its own lock, so concurrent
+ * bookings never double-book a car and bookings for different cars do
+ * not contend
  */
 public class CarRentalService {
 
-    private final List<Car> cars;
-    private final List<Reservation> reservations;
+    // cached availability windows kept per car type
+    private static final int AVAILABILITY_CACHE_SIZE = 1024;
+    // pool size from which scans fork across cores; see
+    // ParallelScanBenchmark for where the crossover lies
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 16_384;
+
+    // the fleet partitioned by type, so queries only touch cars of the
+    // requested category; pools only grow, retired cars stay in place
+    private final Map<CarType, AppendOnlyList<CarSchedule>> fleet;
+    // per-type index deciding which free car takes a booking
+    private final Map<CarType, CarAllocator> allocators;
+    // per-type count of cars not retired, so totals don't walk the pool
+    private final Map<CarType, AtomicInteger> activeCars;
+    private final AllocationStrategy strategy;
+    private final ReservationStore reservations;
+    // per-car reservations sorted by start, indexed by car index
+    private final AppendOnlyList<CarSchedule> schedules;
+    // serializes fleet changes with each other; bookings never take it
+    private final ReentrantLock fleetLock = new ReentrantLock();
+    // optional write-ahead journal; null when running purely in memory
+    private final ReservationJournal journal;
+    private final IdGenerator ids;
+    // index of schedules[0]; non-zero when this service is one shard of a fleet
+    private final int firstCarIndex;
+    private final ServiceMetrics metrics;
+    private final AvailabilityCache availabilityCache;
+    // sold-out requests waiting for a cancellation
+    private final Waitlist waitlist;
+    // day bitmaps answering whole-day windows; null until enabled
+    private volatile OccupancyEngine occupancy;
+    // change feed for in-process subscribers; null until enabled
+    private volatile ReservationEventStream events;
+    // bookings in the store whose RESERVED event is not published yet, so
+    // a cancel or move of one publishes it first; by reservation id
+    private final ConcurrentHashMap<Long, Reservation> unannounced = new ConcurrentHashMap<>();
+    // pools at least this large are scanned in parallel on parallelExecutor;
+    // with a single worker, forking would only add overhead
+    private volatile int parallelThreshold = ForkJoinPool.getCommonPoolParallelism() > 1
+            ? DEFAULT_PARALLEL_THRESHOLD
+            : Integer.MAX_VALUE;
+    private volatile ForkJoinPool parallelExecutor = ForkJoinPool.commonPool();
 
     public CarRentalService(Map<CarType, Integer> initialInventory) {
-        this.cars = new CopyOnWriteArrayList<>();
-        this.reservations = new CopyOnWriteArrayList<>();
+        this(initialInventory, null);
+    }
 
-        initialInventory.forEach((type, count) -> {
-            for (int i = 0; i < count; i++) {
-                cars.add(new Car(type));
+    /**
+     * Creates a service whose reservations are persisted to a journal.
+     * Reservations recovered by the journal are restored before the
+     * service is returned, and every later reserve and cancel is recorded
+     * durably before the call returns.
+     *
+     * The journal records every car with its index and type, so recovered
+     * reservations map back onto the same cars whatever the inventory is
+     * changed to. A type whose configured count grew gets new cars numbered
+     * after the recorded ones; one whose count shrank keeps its recorded
+     * cars, which can be retired with {@link #retireCar}.
+     *
+     * @param initialInventory the number of cars of each type
+     * @param journal          the journal to recover from and record to, or
+     *                         null to keep state in memory only
+     * @throws IllegalStateException if the journal references unknown cars,
+     *                               or books a car as another type
+     */
+    public CarRentalService(Map<CarType, Integer> initialInventory, ReservationJournal journal) {
+        this(initialInventory, journal, AllocationStrategy.FIRST_FIT);
+    }
+
+    /**
+     * Creates a service that chooses among free cars with the given
+     * strategy. See {@link AllocationStrategy}.
+     *
+     * @param initialInventory the number of cars of each type
+     * @param journal          the journal to recover from and record to, or
+     *                         null to keep state in memory only
+     * @param strategy         how to pick a car when several are free
+     * @throws IllegalStateException if the journal references unknown cars
+     */
+    public CarRentalService(Map<CarType, Integer> initialInventory, ReservationJournal journal,
+            AllocationStrategy strategy) {
+        this(initialInventory, journal, strategy, 0, 0);
+    }
+
+    /**
+     * Creates a service holding one partition of a larger fleet, as used by
+     * the sharding layer. Its cars are numbered from {@code firstCarIndex},
+     * so car IDs stay unique across partitions, and its reservation ids
+     * carry {@code nodeId} (see {@link IdGenerator#nodeOf}), so a router
+     * can tell which partition owns any reservation from its id alone.
+     *
+     * @param initialInventory the number of cars of each type
+     * @param journal          the journal to recover from and record to, or
+     *                         null to keep state in memory only
+     * @param strategy         how to pick a car when several are free
+     * @param nodeId           the node id stamped into reservation ids
+     * @param firstCarIndex    the index of this partition's first car
+     * @throws IllegalStateException if the journal references unknown cars
+     */
+    public CarRentalService(Map<CarType, Integer> initialInventory, ReservationJournal journal,
+            AllocationStrategy strategy, int nodeId, int firstCarIndex) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("Allocation strategy cannot be null");
+        }
+        this.fleet = new EnumMap<>(CarType.class);
+        this.allocators = new EnumMap<>(CarType.class);
+        this.activeCars = new EnumMap<>(CarType.class);
+        this.strategy = strategy;
+        this.reservations = new ReservationStore();
+        this.journal = journal;
+        if (firstCarIndex < 0) {
+            throw new IllegalArgumentException("First car index cannot be negative");
+        }
+        this.ids = new IdGenerator(nodeId);
+        this.firstCarIndex = firstCarIndex;
+        this.metrics = new ServiceMetrics();
+        this.availabilityCache = new AvailabilityCache(AVAILABILITY_CACHE_SIZE, metrics);
+        this.waitlist = new Waitlist(this::tryReserveCar, r -> cancelReservation(r.getId()),
+                Waitlist.DEFAULT_CAPACITY, Waitlist.DEFAULT_TIMEOUT, Waitlist.newDefaultExecutor());
+
+        this.schedules = new AppendOnlyList<>();
+        for (CarType type : CarType.values()) {
+            allocators.put(type, CarAllocator.create(strategy));
+            activeCars.put(type, new AtomicInteger());
+            fleet.put(type, new AppendOnlyList<>());
+        }
+        List<Car> recorded = journal == null ? List.of() : journal.getAddedCars();
+        if (!recorded.isEmpty() && recorded.get(0).getIndex() == firstCarIndex) {
+            // the journal holds the whole fleet, so every car comes back at
+            // its recorded index and type, and only growth is numbered anew
+            Map<CarType, Integer> counts = new EnumMap<>(CarType.class);
+            for (Car car : recorded) {
+                addRecordedCar(car);
+                counts.merge(car.getType(), 1, Integer::sum);
+            }
+            List<Car> grown = new ArrayList<>();
+            for (CarType type : CarType.values()) {
+                int missing = initialInventory.getOrDefault(type, 0) - counts.getOrDefault(type, 0);
+                for (int i = 0; i < missing; i++) {
+                    Car car = new Car(nextCarIndex() + grown.size(), type);
+                    grown.add(car);
+                }
+            }
+            journal.recordCarsAdded(grown);
+            grown.forEach(this::addSchedule);
+        } else {
+            List<Car> initial = new ArrayList<>();
+            for (CarType type : CarType.values()) {
+                int count = initialInventory.getOrDefault(type, 0);
+                for (int i = 0; i < count; i++) {
+                    Car car = new Car(nextCarIndex(), type);
+                    addSchedule(car);
+                    initial.add(car);
+                }
+            }
+            if (journal != null) {
+                // a new journal, or one from before the inventory was
+                // recorded: cars added at runtime follow the configured ones
+                recorded.forEach(this::addRecordedCar);
+                journal.recordCarsAdded(initial);
+            }
+        }
+
+        if (journal != null) {
+            // grouped per car and sorted, so each car's timeline is built once
+            Map<CarSchedule, List<Reservation>> live = new IdentityHashMap<>();
+            for (Reservation reservation : journal.getRecoveredReservations()) {
+                CarSchedule schedule = recoveredSchedule(reservation);
+                live.computeIfAbsent(schedule, s -> new ArrayList<>()).add(reservation);
+                reservations.add(reservation);
+                // the clock may be behind the last run, so never hand out a
+                // recovered id again
+                ids.advancePast(reservation.getNumericId());
+            }
+            live.forEach((schedule, booked) -> {
+                booked.sort(ReservationStore.BY_START);
+                schedule.restore(booked);
+            });
+            // archived bookings go straight back into each car's archive,
+            // never through the live timeline
+            Map<CarSchedule, List<Reservation>> archive = new IdentityHashMap<>();
+            for (Reservation reservation : journal.getRecoveredArchive()) {
+                CarSchedule schedule = recoveredSchedule(reservation);
+                archive.computeIfAbsent(schedule, s -> new ArrayList<>()).add(reservation);
+                ids.advancePast(reservation.getNumericId());
             }
-        });
+            archive.forEach((schedule, archived) -> {
+                archived.sort(ReservationStore.BY_START);
+                schedule.restoreArchived(archived);
+            });
+            for (int carIndex : journal.getRetiredCarIndexes()) {
+                CarSchedule schedule = scheduleAt(carIndex);
+                if (schedule == null) {
+                    throw new IllegalStateException("Journal retires unknown car " + carIndex);
+                }
+                schedule.retire();
+            }
+            journal.attach(() -> allReservations(false), this::archivedReservations);
+        }
+    }
+
+    /**
+     * Helper for recovery: puts back a car the journal recorded, which must
+     * be the next one in sequence.
+     */
+    private void addRecordedCar(Car car) {
+        if (car.getIndex() != nextCarIndex()) {
+            throw new IllegalStateException("Journal adds car " + car.getId() + " out of sequence");
+        }
+        addSchedule(car);
+    }
+
+    /**
+     * Helper for recovery: the car a recovered reservation was made on,
+     * checked to still be a car of the reservation's type.
+     */
+    private CarSchedule recoveredSchedule(Reservation reservation) {
+        CarSchedule schedule = scheduleAt(reservation.getCarIndex());
+        if (schedule == null) {
+            throw new IllegalStateException("Journal references unknown car " + reservation.getCarId());
+        }
+        if (schedule.getCar().getType() != reservation.getCarType()) {
+            throw new IllegalStateException("Journal books car " + reservation.getCarId() + " as a "
+                    + reservation.getCarType() + " but it is a " + schedule.getCar().getType()
+                    + "; was the inventory changed?");
+        }
+        return schedule;
     }
 
     /**
@@ -45,6 +283,101 @@ public class CarRentalService {
     public Reservation reserveCar(CarType type,
             LocalDateTime start,
             int days) {
+        Reservation reservation = tryReserveCar(type, start, days);
+        if (reservation == null) {
+            // If no car is free we signal failure via NoAvailableCarException so
+            // callers can choose how to handle it
+            throw new NoAvailableCarException(
+                    "No " + type + " cars available from " + start + " for " + days + " days");
+        }
+        return reservation;
+    }
+
+    /**
+     * Reserves a car
+     * 
+     * Misses never construct an exception, so this is the cheaper entry
+     * point when sold-out responses are common.
+     * 
+     * @param type  the type of car to reserve
+     * @param start the start time of the reservation
+     * @param days  the number of days for the reservation
+     * @return an Optional containing the reservation if successful, empty otherwise
+     * @throws IllegalArgumentException if parameters are invalid
+     */
+    public Optional<Reservation> reserveCarOptional(CarType type,
+            LocalDateTime start,
+            int days) {
+        return Optional.ofNullable(tryReserveCar(type, start, days));
+    }
+
+    /**
+     * Reserves a car, or joins the waitlist for its type if none is free.
+     * 
+     * Sold-out requests queue in arrival order instead of retrying. Each
+     * cancellation offers the window it frees to the queued requests that
+     * overlap it, earliest first, and completes the future of every one it
+     * can book. Cancel the future, or bound it with
+     * {@link CompletableFuture#orTimeout}, to leave the waitlist sooner than
+     * the default timeout of one hour. A type's line holds at most 10,000
+     * requests; beyond that the future fails at once.
+     * 
+     * Waiters are matched and completed on the waitlist executor, never on
+     * the cancelling thread, so dependent work should use the async
+     * variants if it may block.
+     * 
+     * @param type  the type of car to reserve
+     * @param start the start time of the reservation
+     * @param days  the number of days for the reservation
+     * @return a future of the reservation, already completed if a car was
+     *         free; fails with {@link NoAvailableCarException} if the line
+     *         is full, or with a TimeoutException once the wait times out
+     * @throws IllegalArgumentException if parameters are invalid
+     */
+    public CompletableFuture<Reservation> reserveCarOrWait(CarType type,
+            LocalDateTime start,
+            int days) {
+        Reservation reservation = tryReserveCar(type, start, days);
+        if (reservation != null) {
+            return CompletableFuture.completedFuture(reservation);
+        }
+        return waitlist.join(type, start, days);
+    }
+
+    /**
+     * Sets where waiters are matched against freed cars. Matching books
+     * cars, journal writes included, so give it an executor that may block,
+     * such as one running each task on a virtual thread. The default is a
+     * small pool of the waitlist's own daemon threads, one per car type at
+     * most.
+     * 
+     * @param executor runs the matching for each car type
+     * @throws IllegalArgumentException if executor is null
+     */
+    public void setWaitlistExecutor(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Waitlist executor cannot be null");
+        }
+        waitlist.setExecutor(executor);
+    }
+
+    /**
+     * @param type the type of car
+     * @return the number of requests waiting for a car of that type
+     */
+    public int getWaitlistSize(CarType type) {
+        return type == null ? 0 : waitlist.size(type);
+    }
+
+    /**
+     * Shared reservation path. Reports a miss by returning null so that
+     * neither public entry point pays for an exception it doesn't need.
+     *
+     * @return the created Reservation, or null if no car is free
+     */
+    private Reservation tryReserveCar(CarType type,
+            LocalDateTime start,
+            int days) {
         // validate inputs early to keep service usage safe
         if (type == null) {
             throw new IllegalArgumentException("Car type cannot be null");
@@ -56,117 +389,1085 @@ public class CarRentalService {
             throw new IllegalArgumentException("Number of days must be greater than 0");
         }
 
-        // find the first car of the requested type that is free for the
-        // entire requested period
-        // If none exists we signal failure via NoAvailableCarException so callers can
-        // choose how to handle it
-        Car selectedCar = cars.stream()
-                .filter(car -> car.getType() == type)
-                .filter(car -> isAvailable(car.getId(), start, days))
-                .findFirst()
-                .orElseThrow(() -> new NoAvailableCarException(
-                        "No " + type + " cars available from " + start + " for " + days + " days"));
-
-        // create and record the reservation
-        Reservation reservation = new Reservation(selectedCar.getId(), type, start, days);
-        reservations.add(reservation);
+        // walk the cars of the requested type in the strategy's order of
+        // preference and claim the first one that is free for the entire
+        // requested period. The lock-free check skips obviously booked cars,
+        // and tryReserve re-checks under that car's lock so two threads can
+        // never both claim the same window.
+        long startNanos = System.nanoTime();
+        long startSecond = Reservation.toEpochSecond(start);
+        long endSecond = startSecond + days * Reservation.SECONDS_PER_DAY;
+        List<CarSchedule> pool = pool(type);
+        int size = pool.size();
+        Reservation reservation = null;
+        int scanned = 0;
+        if (strategy == AllocationStrategy.FIRST_FIT && size >= parallelThreshold) {
+            // search in parallel, claim sequentially: the car found can still
+            // be taken before we lock it, so resume the search just past it
+            ForkJoinPool executor = parallelExecutor;
+            int index = -1;
+            while (reservation == null
+                    && (index = ParallelScan.firstFree(executor, pool, index + 1, size, startSecond, endSecond)) >= 0) {
+                reservation = pool.get(index).tryReserve(ids, type, start, days);
+            }
+            scanned = reservation == null ? size : index + 1;
+        } else {
+            Iterator<CarSchedule> candidates = allocators.get(type).candidates(pool, startSecond, endSecond);
+            while (reservation == null && candidates.hasNext()) {
+                CarSchedule schedule = candidates.next();
+                scanned++;
+                if (schedule.isFree(startSecond, endSecond)) {
+                    reservation = schedule.tryReserve(ids, type, start, days);
+                }
+            }
+        }
+        if (reservation != null) {
+            try {
+                // queued before the booking reaches the store, so a cancel
+                // that finds it there is always logged after it
+                PendingWrite logged = journal != null ? journal.appendReserved(reservation) : PendingWrite.NONE;
+                try {
+                    awaitAnnouncement(reservation);
+                    reservations.add(reservation);
+                } finally {
+                    logged.applied();
+                }
+                availabilityCache.invalidate(type, startSecond, endSecond);
+                logged.await();
+            } catch (RuntimeException e) {
+                rollBack(reservation);
+                throw e;
+            }
+            publish(ReservationEvent.Kind.RESERVED, reservation);
+        }
+        metrics.recordCarsScanned(scanned);
+        metrics.recordReservation(type, reservation != null);
+        metrics.recordLatency(Operation.RESERVE, startNanos);
         return reservation;
     }
 
     /**
-     * Reserves a car
+     * Reserves a group of cars with all-or-nothing semantics: either every
+     * request is booked or none are.
+     *
+     * A car is picked for each request without locks, taking into account
+     * cars already picked for earlier requests in the same batch. Only the
+     * picked cars are then locked, once each, in index order, and checked
+     * again. If another booking took one of them in the meantime the locks
+     * are released and the batch is picked again; otherwise every claim is
+     * made before any lock is released. Bookings of other cars in the same
+     * pools carry on throughout. A miss does not throw; the reason is
+     * reported per request instead.
      * 
-     * @param type  the type of car to reserve
-     * @param start the start time of the reservation
-     * @param days  the number of days for the reservation
-     * @return an Optional containing the reservation if successful, empty otherwise
+     * @param requests the cars to book
+     * @return the reservations in request order, or the per-request failures
+     * @throws IllegalArgumentException if the request list or any element is null
      */
-    public Optional<Reservation> reserveCarOptional(CarType type,
-            LocalDateTime start,
-            int days) {
+    public BatchReservationResult reserveCars(List<ReservationRequest> requests) {
+        if (requests == null) {
+            throw new IllegalArgumentException("Reservation requests cannot be null");
+        }
+        for (ReservationRequest request : requests) {
+            if (request == null) {
+                throw new IllegalArgumentException("Reservation requests cannot be null");
+            }
+        }
+        long startNanos = System.nanoTime();
+        List<Reservation> booked = new ArrayList<>(requests.size());
+        PendingWrite logged;
+        while (true) {
+            List<CarSchedule> assigned = assignCars(requests);
+            Map<Integer, String> failures = new HashMap<>();
+            for (int i = 0; i < requests.size(); i++) {
+                if (assigned.get(i) == null) {
+                    ReservationRequest request = requests.get(i);
+                    failures.put(i, "No " + request.getCarType() + " cars available from "
+                            + request.getStart() + " for " + request.getNumberOfDays() + " days");
+                }
+            }
+            if (!failures.isEmpty()) {
+                for (int i = 0; i < requests.size(); i++) {
+                    metrics.recordReservation(requests.get(i).getCarType(), !failures.containsKey(i));
+                }
+                metrics.recordLatency(Operation.RESERVE_BATCH, startNanos);
+                return BatchReservationResult.failure(failures);
+            }
+
+            // index order, like every other path holding several car locks
+            List<CarSchedule> locked = new ArrayList<>(new LinkedHashSet<>(assigned));
+            locked.sort(Comparator.comparingInt(schedule -> schedule.getCar().getIndex()));
+            locked.forEach(CarSchedule::lock);
+            try {
+                if (!stillFree(requests, assigned)) {
+                    continue;
+                }
+                // every picked car is locked by us and free, so these claims cannot fail
+                for (int i = 0; i < requests.size(); i++) {
+                    ReservationRequest request = requests.get(i);
+                    booked.add(assigned.get(i).tryReserve(ids,
+                            request.getCarType(), request.getStart(), request.getNumberOfDays()));
+                }
+                // queued before the bookings reach the store, as for a single booking
+                logged = journal != null ? journal.appendReserved(booked) : PendingWrite.NONE;
+                try {
+                    booked.forEach(this::awaitAnnouncement);
+                    reservations.addAll(booked);
+                } finally {
+                    logged.applied();
+                }
+                for (Reservation reservation : booked) {
+                    availabilityCache.invalidate(reservation.getCarType(),
+                            reservation.getStartEpochSecond(), reservation.getEndEpochSecond());
+                }
+                break;
+            } catch (RuntimeException e) {
+                booked.forEach(this::rollBack);
+                throw e;
+            } finally {
+                locked.forEach(CarSchedule::unlock);
+            }
+        }
+        // wait outside the car locks so the fsync doesn't hold up other bookings
         try {
-            return Optional.of(reserveCar(type, start, days));
-        } catch (NoAvailableCarException e) {
-            return Optional.empty();
+            logged.await();
+        } catch (RuntimeException e) {
+            booked.forEach(this::rollBack);
+            throw e;
+        }
+        for (Reservation reservation : booked) {
+            publish(ReservationEvent.Kind.RESERVED, reservation);
+        }
+        for (ReservationRequest request : requests) {
+            metrics.recordReservation(request.getCarType(), true);
+        }
+        metrics.recordLatency(Operation.RESERVE_BATCH, startNanos);
+        return BatchReservationResult.success(booked);
+    }
+
+    /**
+     * Helper for group bookings. Picks a car for each request in the
+     * strategy's order of preference, treating cars picked for earlier
+     * requests in the batch as booked for those windows. Runs without
+     * locks, so the picks are only a proposal that the caller confirms
+     * under the picked cars' locks.
+     *
+     * @return the chosen car per request, null where none is free
+     */
+    private List<CarSchedule> assignCars(List<ReservationRequest> requests) {
+        // windows already handed out in this batch, as {start, end} seconds
+        Map<CarSchedule, List<long[]>> pending = new IdentityHashMap<>();
+        List<CarSchedule> assigned = new ArrayList<>(requests.size());
+        for (ReservationRequest request : requests) {
+            long startSecond = Reservation.toEpochSecond(request.getStart());
+            long endSecond = startSecond + request.getNumberOfDays() * Reservation.SECONDS_PER_DAY;
+            List<CarSchedule> pool = pool(request.getCarType());
+            CarSchedule chosen = pick(allocators.get(request.getCarType()).candidates(pool, startSecond, endSecond),
+                    pending, startSecond, endSecond);
+            if (chosen != null) {
+                pending.computeIfAbsent(chosen, s -> new ArrayList<>()).add(new long[] { startSecond, endSecond });
+            }
+            assigned.add(chosen);
+        }
+        return assigned;
+    }
+
+    private static CarSchedule pick(Iterator<CarSchedule> candidates, Map<CarSchedule, List<long[]>> pending,
+            long startSecond, long endSecond) {
+        while (candidates.hasNext()) {
+            CarSchedule schedule = candidates.next();
+            if (schedule.isFree(startSecond, endSecond)
+                    && pending.getOrDefault(schedule, List.of()).stream()
+                            .noneMatch(w -> w[0] < endSecond && w[1] > startSecond)) {
+                return schedule;
+            }
         }
+        return null;
     }
 
     /**
-     * Cancels an existing reservation.
+     * Re-checks picked cars once they are locked. Picks within the batch
+     * never overlap each other, so only other bookings can have taken them.
+     */
+    private static boolean stillFree(List<ReservationRequest> requests, List<CarSchedule> assigned) {
+        for (int i = 0; i < requests.size(); i++) {
+            ReservationRequest request = requests.get(i);
+            long startSecond = Reservation.toEpochSecond(request.getStart());
+            if (!assigned.get(i).isFree(startSecond,
+                    startSecond + request.getNumberOfDays() * Reservation.SECONDS_PER_DAY)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Cancels an existing reservation. The freed car is offered to waiting
+     * requests before this returns.
+     * 
+     * With a journal, the car is only freed once the cancellation is on
+     * disk. If it can't be written the reservation stays in place.
      * 
      * @param reservationId the ID of the reservation to cancel
      * @return true if the reservation was found and cancelled, false otherwise
+     * @throws java.io.UncheckedIOException if the journal write fails
      */
     public boolean cancelReservation(String reservationId) {
-        return reservations.removeIf(r -> r.getId().equals(reservationId));
+        long startNanos = System.nanoTime();
+        Reservation reservation = reservations.remove(IdGenerator.parse(reservationId));
+        if (reservation != null) {
+            if (journal != null) {
+                try {
+                    journal.recordCancelled(reservation.getNumericId());
+                } catch (RuntimeException e) {
+                    reinstate(reservation);
+                    throw e;
+                }
+            }
+            scheduleAt(reservation.getCarIndex()).remove(reservation);
+            availabilityCache.invalidate(reservation.getCarType(),
+                    reservation.getStartEpochSecond(), reservation.getEndEpochSecond());
+            publish(ReservationEvent.Kind.CANCELLED, reservation);
+        }
+        metrics.recordLatency(Operation.CANCEL, startNanos);
+        if (reservation != null) {
+            waitlist.released(reservation.getCarType(),
+                    reservation.getStartEpochSecond(), reservation.getEndEpochSecond());
+        }
+        return reservation != null;
+    }
+
+    /**
+     * Cancels a batch of reservations in one pass. Unknown ids are skipped.
+     * 
+     * @param reservationIds the IDs of the reservations to cancel
+     * @return the number of reservations that were found and cancelled
+     */
+    public int cancelReservations(Collection<String> reservationIds) {
+        if (reservationIds == null) {
+            throw new IllegalArgumentException("Reservation IDs cannot be null");
+        }
+        long startNanos = System.nanoTime();
+        List<Long> cancelled = new ArrayList<>();
+        List<Reservation> freed = new ArrayList<>();
+        for (String reservationId : reservationIds) {
+            Reservation reservation = reservations.remove(IdGenerator.parse(reservationId));
+            if (reservation != null) {
+                cancelled.add(reservation.getNumericId());
+                freed.add(reservation);
+            }
+        }
+        // one journal write covers the whole batch; the cars are freed after it
+        if (journal != null) {
+            try {
+                journal.recordCancelled(cancelled);
+            } catch (RuntimeException e) {
+                freed.forEach(this::reinstate);
+                throw e;
+            }
+        }
+        for (Reservation reservation : freed) {
+            scheduleAt(reservation.getCarIndex()).remove(reservation);
+            availabilityCache.invalidate(reservation.getCarType(),
+                    reservation.getStartEpochSecond(), reservation.getEndEpochSecond());
+        }
+        metrics.recordLatency(Operation.CANCEL_BATCH, startNanos);
+        for (Reservation reservation : freed) {
+            publish(ReservationEvent.Kind.CANCELLED, reservation);
+            waitlist.released(reservation.getCarType(),
+                    reservation.getStartEpochSecond(), reservation.getEndEpochSecond());
+        }
+        return cancelled.size();
+    }
+
+    /**
+     * Takes back a booking whose journal record failed: off its car first,
+     * then out of the store, so a cancel of it that failed too finds it
+     * gone from the car and doesn't put it back.
+     */
+    private void rollBack(Reservation reservation) {
+        scheduleAt(reservation.getCarIndex()).remove(reservation);
+        reservations.remove(reservation.getNumericId());
+        unannounced.remove(reservation.getNumericId());
+        availabilityCache.invalidate(reservation.getCarType(),
+                reservation.getStartEpochSecond(), reservation.getEndEpochSecond());
+    }
+
+    /**
+     * Returns a reservation whose cancel failed to the store. It never left
+     * its car, unless rolled back or archived meanwhile, in which case it
+     * stays out.
+     */
+    private void reinstate(Reservation reservation) {
+        CarSchedule schedule = scheduleAt(reservation.getCarIndex());
+        schedule.lock();
+        try {
+            if (schedule.holds(reservation)) {
+                reservations.add(reservation);
+            }
+        } finally {
+            schedule.unlock();
+        }
+    }
+
+    /**
+     * Looks up a reservation by its ID.
+     * 
+     * @param reservationId the ID of the reservation
+     * @return an Optional containing the reservation, empty if it does not exist
+     */
+    public Optional<Reservation> getReservation(String reservationId) {
+        long startNanos = System.nanoTime();
+        Reservation reservation = reservations.find(IdGenerator.parse(reservationId));
+        metrics.recordLatency(Operation.GET_RESERVATION, startNanos);
+        return Optional.ofNullable(reservation);
     }
 
     /**
      * Retrieves all reservations for a specific car.
      * 
      * @param carId the ID of the car
-     * @return a list of all reservations for the car
+     * @return a list of all reservations for the car, ordered by start time
      */
     public List<Reservation> getCarReservations(String carId) {
-        return reservations.stream()
-                .filter(r -> r.getCarId().equals(carId))
-                .collect(Collectors.toList());
+        return getCarReservations(carId, false);
+    }
+
+    /**
+     * Retrieves the reservations for a specific car, optionally including
+     * ones already archived by {@link #archiveEndedBefore}.
+     * 
+     * @param carId           the ID of the car
+     * @param includeArchived whether to include archived reservations
+     * @return the reservations for the car, ordered by start time
+     */
+    public List<Reservation> getCarReservations(String carId, boolean includeArchived) {
+        long startNanos = System.nanoTime();
+        CarSchedule schedule = schedule(carId);
+        List<Reservation> result;
+        if (schedule == null) {
+            result = new ArrayList<>();
+        } else if (includeArchived) {
+            // archived bookings all ended before any live one started
+            result = schedule.getArchivedReservations();
+            result.addAll(schedule.getReservations());
+        } else {
+            result = schedule.getReservations();
+        }
+        metrics.recordLatency(Operation.GET_CAR_RESERVATIONS, startNanos);
+        return result;
+    }
+
+    /**
+     * Helper mapping a car ID from the API edge to its schedule.
+     *
+     * @return the schedule, or null if no car has that ID
+     */
+    private CarSchedule schedule(String carId) {
+        return scheduleAt(IdGenerator.parse(carId));
+    }
+
+    /**
+     * @return the schedule of the car with the given index, or null if the
+     *         car is not in this service
+     */
+    private CarSchedule scheduleAt(long carIndex) {
+        long local = carIndex - firstCarIndex;
+        return carIndex >= 0 && local >= 0 && local < schedules.size() ? schedules.get((int) local) : null;
+    }
+
+    /**
+     * @return the index the next car added to this service gets
+     */
+    private int nextCarIndex() {
+        return firstCarIndex + schedules.size();
+    }
+
+    /**
+     * Publishes a new, empty car: first where cancels and lookups find it by
+     * index, then in its pool, and only then in the allocation index, so no
+     * booking can land on it before the rest of the service knows the car.
+     * Callers serialize fleet changes.
+     */
+    private void addSchedule(Car car) {
+        CarAllocator allocator = allocators.get(car.getType());
+        AtomicInteger active = activeCars.get(car.getType());
+        CarSchedule schedule = new CarSchedule(car, metrics, allocator, active);
+        OccupancyEngine engine = occupancy;
+        if (engine != null) {
+            schedule.setOccupancy(engine.added(schedule));
+        }
+        schedules.add(schedule);
+        fleet.get(car.getType()).add(schedule);
+        active.incrementAndGet();
+        allocator.register(schedule);
     }
 
     /**
      * Checks how many cars of a given type are available for the specified dates.
      * 
+     * With the occupancy engine enabled, windows starting at midnight inside
+     * its horizon are counted from day bitmaps; any other window is checked
+     * booking by booking.
+     * 
+     * Answers are cached per window. Every booking and cancellation drops
+     * the cached windows it overlaps before returning, so a cached answer
+     * is never older than the last completed change.
+     * 
      * @param type  the type of car
      * @param start the start time
      * @param days  the number of days
      * @return the number of available cars of the specified type
+     * @throws IllegalArgumentException if type or start is null, or days is
+     *                                  not positive
      */
     public int getAvailableCarsCount(CarType type, LocalDateTime start, int days) {
-        return (int) cars.stream()
-                .filter(car -> car.getType() == type)
-                .filter(car -> isAvailable(car.getId(), start, days))
-                .count();
+        // the same checks as a booking, before start is converted
+        if (type == null) {
+            throw new IllegalArgumentException("Car type cannot be null");
+        }
+        if (start == null) {
+            throw new IllegalArgumentException("Start time cannot be null");
+        }
+        if (days <= 0) {
+            throw new IllegalArgumentException("Number of days must be greater than 0");
+        }
+        long startNanos = System.nanoTime();
+        long startSecond = Reservation.toEpochSecond(start);
+        long endSecond = startSecond + days * Reservation.SECONDS_PER_DAY;
+        int available = availabilityCache.get(type, startSecond, endSecond);
+        if (available < 0) {
+            long epoch = availabilityCache.epoch(type);
+            List<CarSchedule> pool = pool(type);
+            OccupancyEngine engine = occupancy;
+            available = engine == null ? -1 : engine.countFree(type, pool, startSecond, days);
+            if (available < 0) {
+                available = countFree(pool, startSecond, endSecond);
+            }
+            availabilityCache.put(type, startSecond, endSecond, available, epoch);
+            metrics.recordCarsScanned(pool.size());
+        }
+        metrics.recordLatency(Operation.AVAILABILITY_COUNT, startNanos);
+        return available;
+    }
+
+    /**
+     * Counts the cars of a pool free for a window, forking the scan across
+     * the parallel executor once the pool reaches the parallel threshold.
+     */
+    private int countFree(List<CarSchedule> pool, long startSecond, long endSecond) {
+        int size = pool.size();
+        if (size >= parallelThreshold) {
+            return ParallelScan.countFree(parallelExecutor, pool, size, startSecond, endSecond);
+        }
+        int available = 0;
+        for (int i = 0; i < size; i++) {
+            if (pool.get(i).isFree(startSecond, endSecond)) {
+                available++;
+            }
+        }
+        return available;
     }
 
     /**
-     * Checks if a specific car is available for the given dates.
+     * Counts free cars of a type for each day of a window, e.g. to render an
+     * availability calendar. Equivalent to calling
+     * {@link #getAvailableCarsCount} with one day for every day in the
+     * window, but answered in a single sweep over the pool.
      * 
-     * @param carId the ID of the car
-     * @param start the start time
-     * @param days  the number of days
-     * @return true if the car is available, false otherwise
+     * @param type the type of car
+     * @param from the start of the first day
+     * @param days the number of days in the window
+     * @return the number of cars free for the whole of each day, indexed by
+     *         day offset from {@code from}
      */
+    public int[] getDailyAvailableCarsCounts(CarType type, LocalDateTime from, int days) {
+        return getAvailableCarsCounts(type, from, days, Duration.ofDays(1));
+    }
+
     /**
-     * Helper used during reservation logic. We look only at existing
-     * reservations for *this* car and ensure none of them overlap the
-     * requested window.
+     * Counts free cars of a type for each bucket of a window. A car counts as
+     * free in a bucket only if no booking overlaps any part of it.
+     *
+     * Each car's bookings inside the window are swept once into a difference
+     * array which is then prefix-summed, so the cost is linear in the pool
+     * size plus the bookings in the window plus the number of buckets.
+     * 
+     * @param type       the type of car
+     * @param from       the start of the first bucket
+     * @param buckets    the number of buckets
+     * @param bucketSize the length of each bucket, a whole number of seconds
+     * @return the number of cars free for the whole of each bucket
+     * @throws IllegalArgumentException if parameters are invalid
      */
-    private boolean isAvailable(String carId,
-            LocalDateTime start,
-            int days) {
-        return reservations.stream()
-                .filter(r -> r.getCarId().equals(carId))
-                .noneMatch(r -> r.overlaps(start, days));
+    public int[] getAvailableCarsCounts(CarType type, LocalDateTime from, int buckets, Duration bucketSize) {
+        if (type == null) {
+            throw new IllegalArgumentException("Car type cannot be null");
+        }
+        if (from == null) {
+            throw new IllegalArgumentException("Start time cannot be null");
+        }
+        if (buckets <= 0) {
+            throw new IllegalArgumentException("Number of buckets must be greater than 0");
+        }
+        if (bucketSize == null || bucketSize.getSeconds() <= 0 || bucketSize.getNano() != 0) {
+            throw new IllegalArgumentException("Bucket size must be a positive whole number of seconds");
+        }
+
+        long startNanos = System.nanoTime();
+        long fromSecond = Reservation.toEpochSecond(from);
+        int[] busyDelta = new int[buckets + 1];
+        List<CarSchedule> pool = pool(type);
+        // the pool may grow while we sweep; count only the cars we visit
+        int cars = pool.size();
+        for (int i = 0; i < cars; i++) {
+            pool.get(i).addBusyBuckets(fromSecond, bucketSize.getSeconds(), busyDelta);
+        }
+
+        int[] available = new int[buckets];
+        int busy = 0;
+        for (int i = 0; i < buckets; i++) {
+            busy += busyDelta[i];
+            available[i] = cars - busy;
+        }
+        metrics.recordCarsScanned(cars);
+        metrics.recordLatency(Operation.AVAILABILITY_BUCKETS, startNanos);
+        return available;
     }
 
     /**
      * Gets the total number of cars of a specific type.
      * 
      * @param type the type of car
-     * @return the number of cars of that type
+     * @return the number of cars of that type in service, not counting
+     *         retired ones
      */
     public int getTotalCarsCount(CarType type) {
-        return (int) cars.stream()
-                .filter(car -> car.getType() == type)
-                .count();
+        return type == null ? 0 : activeCars.get(type).get();
+    }
+
+    /**
+     * Helper returning the cars of one type, retired ones included. Types
+     * that were not part of the initial inventory start with an empty pool.
+     */
+    private List<CarSchedule> pool(CarType type) {
+        return type == null ? List.of() : fleet.get(type);
+    }
+
+    /**
+     * Writes the fleet and its current bookings to a compact memory-mappable
+     * snapshot file. See {@link FleetSnapshot} for the format.
+     * 
+     * @param file the snapshot file to create or replace
+     * @throws IOException if the file cannot be written
+     */
+    public void exportSnapshot(Path file) throws IOException {
+        List<Car> cars = new ArrayList<>();
+        for (CarSchedule schedule : schedules) {
+            if (!schedule.isRetired()) {
+                cars.add(schedule.getCar());
+            }
+        }
+        FleetSnapshot.write(file, cars, car -> scheduleAt(car.getIndex()).getReservations());
+    }
+
+    /**
+     * Opens a snapshot written by {@link #exportSnapshot} read-only.
+     * Availability queries are answered straight from the mapped file, so
+     * even a multi-million-row history loads without touching the heap.
+     * 
+     * @param file the snapshot file
+     * @return a read-only view of the snapshot
+     * @throws IOException if the file cannot be read
+     */
+    public static FleetSnapshot openSnapshot(Path file) throws IOException {
+        return FleetSnapshot.open(file);
     }
 
     /**
      * Gets all reservations in the system.
      * 
-     * @return a list of all reservations
+     * @return a list of all reservations, ordered by start time
      */
     public List<Reservation> getAllReservations() {
-        return new ArrayList<>(reservations);
+        return getAllReservations(false);
+    }
+
+    /**
+     * Gets all reservations in the system, optionally including ones
+     * already archived by {@link #archiveEndedBefore}.
+     * 
+     * @param includeArchived whether to include archived reservations
+     * @return the reservations, ordered by start time
+     */
+    public List<Reservation> getAllReservations(boolean includeArchived) {
+        long startNanos = System.nanoTime();
+        List<Reservation> all = allReservations(includeArchived);
+        metrics.recordLatency(Operation.GET_ALL_RESERVATIONS, startNanos);
+        return all;
+    }
+
+    private List<Reservation> allReservations(boolean includeArchived) {
+        List<Reservation> all = reservations.snapshot();
+        if (includeArchived) {
+            all.addAll(archivedReservations());
+            all.sort(ReservationStore.BY_START);
+        }
+        return all;
+    }
+
+    private List<Reservation> archivedReservations() {
+        List<Reservation> archived = new ArrayList<>();
+        for (CarSchedule schedule : schedules) {
+            archived.addAll(schedule.getArchivedReservations());
+        }
+        return archived;
+    }
+
+    /**
+     * Streams the live reservations matching a query, in start-time order.
+     * Reservations are read lazily from the same indexes the service uses:
+     * a car's timeline when the query names a car, the type's start-ordered
+     * set when it names only a type, and the whole store otherwise. So
+     * exporting any number of them holds no more than one in memory at a
+     * time. A time window seeks straight to the first
+     * booking that can overlap it and stops after the window ends.
+     * 
+     * The stream is weakly consistent: reservations made or cancelled while
+     * it is consumed may or may not be seen. Archived reservations are not
+     * included.
+     * 
+     * @param query the filters to apply
+     * @return the matching reservations, ordered by start time then id
+     * @throws IllegalArgumentException if query is null
+     */
+    public Stream<Reservation> streamReservations(ReservationQuery query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Reservation query cannot be null");
+        }
+        return streamAfter(query, null);
+    }
+
+    /**
+     * Gets one page of the live reservations matching a query. Pages are
+     * read from the same lazy stream as {@link #streamReservations}, so a
+     * page costs its own size however deep into the results it is.
+     * 
+     * @param query  the filters to apply
+     * @param cursor the cursor from the previous page, or null for the first
+     * @param limit  the maximum number of reservations on the page
+     * @return the page, with a cursor for the next one if there are more
+     * @throws IllegalArgumentException if parameters are invalid
+     */
+    public ReservationPage getReservations(ReservationQuery query, String cursor, int limit) {
+        if (query == null) {
+            throw new IllegalArgumentException("Reservation query cannot be null");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be greater than 0");
+        }
+        // fetch one extra to learn whether another page follows
+        List<Reservation> page = new ArrayList<>(
+                streamAfter(query, cursor == null ? null : decodeCursor(cursor)).limit(limit + 1L).toList());
+        if (page.size() <= limit) {
+            return new ReservationPage(page, null);
+        }
+        Reservation last = page.get(limit - 1);
+        return new ReservationPage(page.subList(0, limit), last.getStart() + "_" + last.getId());
+    }
+
+    /**
+     * Helper turning a page cursor back into a position in start-time order.
+     *
+     * @return a probe ordered exactly where the cursor's reservation was
+     */
+    private static Reservation decodeCursor(String cursor) {
+        int separator = cursor.lastIndexOf('_');
+        long id = separator < 0 ? -1 : IdGenerator.parse(cursor.substring(separator + 1));
+        if (id < 0) {
+            throw new IllegalArgumentException("Invalid page cursor: " + cursor);
+        }
+        try {
+            return probe(LocalDateTime.parse(cursor.substring(0, separator)), id);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid page cursor: " + cursor);
+        }
+    }
+
+    /**
+     * Helper building a stand-in reservation that sorts at (start, id), for
+     * seeking in start-time order.
+     */
+    private static Reservation probe(LocalDateTime start, long id) {
+        return new Reservation(id, 0, CarType.SEDAN, start, 1);
+    }
+
+    private Stream<Reservation> streamAfter(ReservationQuery query, Reservation after) {
+        Stream<Reservation> source;
+        if (query.getCarId() != null) {
+            CarSchedule schedule = schedule(query.getCarId());
+            if (schedule == null) {
+                return Stream.empty();
+            }
+            if (query.getCarType() != null && schedule.getCar().getType() != query.getCarType()) {
+                return Stream.empty();
+            }
+            source = schedule.streamReservations();
+            if (after != null) {
+                source = source.dropWhile(r -> ReservationStore.BY_START.compare(r, after) <= 0);
+            }
+        } else {
+            Reservation seek = after;
+            if (query.getFrom() != null) {
+                // nothing starting earlier than this can reach into the window
+                Reservation windowStart = probe(
+                        query.getFrom().minusDays(reservations.getMaxNumberOfDays()), Long.MIN_VALUE);
+                if (seek == null || ReservationStore.BY_START.compare(windowStart, seek) > 0) {
+                    seek = windowStart;
+                }
+            }
+            source = reservations.streamAfter(query.getCarType(), seek);
+        }
+
+        if (query.getTo() != null) {
+            long toSecond = Reservation.toEpochSecond(query.getTo());
+            source = source.takeWhile(r -> r.getStartEpochSecond() < toSecond);
+        }
+        if (query.getFrom() != null) {
+            long fromSecond = Reservation.toEpochSecond(query.getFrom());
+            source = source.filter(r -> r.getEndEpochSecond() > fromSecond);
+        }
+        return source;
+    }
+
+    /**
+     * Moves every reservation that ended at or before the cutoff out of the
+     * live structures into a per-car archive. Availability checks, bookings
+     * and the default queries then only pay for active bookings, however
+     * long the history grows. Archived reservations can no longer be
+     * cancelled, and are only returned by the query overloads that opt in.
+     * 
+     * Windows before the cutoff are no longer checked against archived
+     * bookings, so the cutoff should be in the past. With a journal, the
+     * archived bookings are recorded as such and come back archived after
+     * a restart.
+     * 
+     * @param cutoff the time at or before which a reservation must have
+     *               ended to be archived
+     * @return the number of reservations archived
+     * @throws IllegalArgumentException if cutoff is null
+     */
+    public int archiveEndedBefore(LocalDateTime cutoff) {
+        if (cutoff == null) {
+            throw new IllegalArgumentException("Cutoff cannot be null");
+        }
+        long cutoffSecond = Reservation.toEpochSecond(cutoff);
+        List<Reservation> archived = new ArrayList<>();
+        for (CarSchedule schedule : schedules) {
+            List<Reservation> moved = schedule.archiveEndedBefore(cutoffSecond, reservations);
+            if (!moved.isEmpty()) {
+                availabilityCache.invalidate(schedule.getCar().getType(), Long.MIN_VALUE, cutoffSecond);
+                archived.addAll(moved);
+            }
+        }
+        if (journal != null) {
+            // one fsync for the sweep; a crash before it only brings the
+            // bookings back live, as they were before
+            journal.recordArchived(archived);
+        }
+        return archived.size();
+    }
+
+    /**
+     * Keeps a day-by-day occupancy bitmap for every car over a horizon, so
+     * availability for windows made of whole days is answered with a few
+     * bitwise operations per car, and a window containing a day on which
+     * every car of the type is busy is answered without looking at any car.
+     * Windows not starting at midnight, or not inside the horizon, are still
+     * checked against the bookings themselves.
+     * 
+     * The bitmaps are built from the current bookings car by car, each under
+     * its own lock only, and then kept up to date by each booking and
+     * cancellation. Calling this again replaces the horizon, e.g. to roll it
+     * forward each day as {@link OccupancyHorizonRoller} does; while it is
+     * rebuilt, counts fall back to the interval check.
+     * 
+     * @param horizonStart the first day covered
+     * @param horizonDays  the number of days covered
+     * @throws IllegalArgumentException if horizonStart is null or
+     *                                  horizonDays is not positive
+     */
+    public void enableOccupancyEngine(LocalDate horizonStart, int horizonDays) {
+        if (horizonStart == null) {
+            throw new IllegalArgumentException("Horizon start cannot be null");
+        }
+        if (horizonDays <= 0) {
+            throw new IllegalArgumentException("Horizon must be at least one day");
+        }
+        fleetLock.lock();
+        try {
+            OccupancyEngine engine = new OccupancyEngine(horizonStart, horizonDays, fleet);
+            // before any car moves, so readers of the old engine give up
+            // instead of mixing the two horizons
+            OccupancyEngine previous = occupancy;
+            if (previous != null) {
+                previous.replace();
+            }
+            // one car at a time: bookings on other cars carry on meanwhile,
+            // and each lands in whichever engine its car is on by then
+            for (CarSchedule schedule : schedules) {
+                schedule.lock();
+                try {
+                    schedule.setOccupancy(engine.attach(schedule));
+                } finally {
+                    schedule.unlock();
+                }
+            }
+            occupancy = engine;
+            // a count read from the old engine mid-rebuild may have been cached
+            for (CarType type : fleet.keySet()) {
+                availabilityCache.invalidateAll(type);
+            }
+        } finally {
+            fleetLock.unlock();
+        }
+    }
+
+    /**
+     * Starts publishing every booking, cancellation and reassignment to an
+     * in-process event stream, after it is journaled. Publishing writes
+     * into a ring of {@code capacity} slots allocated here, so it adds no
+     * lock or wait to the booking path; subscribers read at their own pace
+     * and a subscriber more than a ring behind loses the oldest events, as
+     * set by its overflow policy.
+     * 
+     * Events for one reservation are published in the order they happened.
+     * A booking is visible to cancels before its own RESERVED event is out,
+     * so until then it is tracked by id, and a cancel or move of it
+     * publishes RESERVED first, in the same step as its own event. A
+     * booking already in flight when the stream is enabled publishes no
+     * RESERVED event.
+     * 
+     * @param capacity the number of events held, a power of two
+     * @return the stream to subscribe to
+     * @throws IllegalArgumentException if capacity is not a positive power of two
+     * @throws IllegalStateException    if the stream is already enabled
+     */
+    public ReservationEventStream enableEventStream(int capacity) {
+        fleetLock.lock();
+        try {
+            if (events != null) {
+                throw new IllegalStateException("Event stream is already enabled");
+            }
+            events = new ReservationEventStream(capacity);
+            return events;
+        } finally {
+            fleetLock.unlock();
+        }
+    }
+
+    /**
+     * @return the event stream, empty unless {@link #enableEventStream(int)}
+     *         was called
+     */
+    public Optional<ReservationEventStream> getEventStream() {
+        return Optional.ofNullable(events);
+    }
+
+    private void publish(ReservationEvent.Kind kind, Reservation reservation) {
+        ReservationEventStream stream = events;
+        if (stream == null) {
+            return;
+        }
+        Long id = reservation.getNumericId();
+        if (kind == ReservationEvent.Kind.RESERVED) {
+            // absent if a cancel or move already published it
+            unannounced.computeIfPresent(id, (key, booked) -> {
+                stream.publish(kind, booked);
+                return null;
+            });
+        } else if (unannounced.containsKey(id)) {
+            // the mapping function runs under the entry's lock, so this and
+            // the booking's own publish can't interleave
+            unannounced.compute(id, (key, booked) -> {
+                if (booked != null) {
+                    stream.publish(ReservationEvent.Kind.RESERVED, booked);
+                }
+                stream.publish(kind, reservation);
+                return null;
+            });
+        } else {
+            stream.publish(kind, reservation);
+        }
+    }
+
+    /**
+     * Marks a booking as awaiting its RESERVED event, before it reaches the
+     * store where a cancel can find it.
+     */
+    private void awaitAnnouncement(Reservation reservation) {
+        if (events != null) {
+            unannounced.put(reservation.getNumericId(), reservation);
+        }
+    }
+
+    /**
+     * Sets when availability counts and first-fit car searches split a pool
+     * across cores. Pools of at least {@code threshold} cars are scanned as
+     * fork-join tasks of about a thousand cars each; smaller
+     * ones are scanned on the calling thread, where forking would cost more
+     * than it saves. A parallel search only finds a car; it is still
+     * claimed under its own lock, and if another booking took it first the
+     * search resumes after it, so every booking gets exactly one car.
+     * 
+     * Defaults to {@value #DEFAULT_PARALLEL_THRESHOLD} cars on the common
+     * pool, or off when the common pool has a single worker. Other
+     * strategies walk their allocation index, which rarely visits more than
+     * a few cars, so only their availability counts fork.
+     * 
+     * @param threshold the smallest pool scanned in parallel;
+     *                  {@link Integer#MAX_VALUE} disables parallel scans
+     * @param executor  the fork-join pool to scan on
+     * @throws IllegalArgumentException if threshold is not positive or
+     *                                  executor is null
+     */
+    public void setParallelEvaluation(int threshold, ForkJoinPool executor) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Parallel threshold must be greater than 0");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Parallel executor cannot be null");
+        }
+        this.parallelExecutor = executor;
+        this.parallelThreshold = threshold;
+    }
+
+    /**
+     * Adds cars to the fleet while the service is running. They are
+     * numbered after the last car and can be booked as soon as this
+     * returns; requests waiting for a car of the type are offered them
+     * first. Bookings and queries carry on throughout, and no existing
+     * car or pool is copied.
+     * 
+     * With a journal, the new cars are recorded before they are published,
+     * so bookings on them survive a restart. Keep the configured inventory
+     * unchanged; runtime additions are restored from the journal.
+     * 
+     * @param type  the type of the new cars
+     * @param count the number of cars to add
+     * @return the ids of the new cars
+     * @throws IllegalArgumentException if type is null or count is not positive
+     */
+    public List<String> addCars(CarType type, int count) {
+        if (type == null) {
+            throw new IllegalArgumentException("Car type cannot be null");
+        }
+        if (count <= 0) {
+            throw new IllegalArgumentException("Number of cars must be greater than 0");
+        }
+        List<String> added = new ArrayList<>(count);
+        fleetLock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                Car car = new Car(nextCarIndex(), type);
+                if (journal != null) {
+                    journal.recordCarAdded(car);
+                }
+                addSchedule(car);
+                added.add(car.getId());
+            }
+        } finally {
+            fleetLock.unlock();
+        }
+        availabilityCache.invalidateAll(type);
+        waitlist.released(type, Long.MIN_VALUE, Long.MAX_VALUE);
+        return added;
+    }
+
+    /**
+     * Takes a car out of service. It stops taking bookings at once, and
+     * each of its live bookings is moved, keeping its id, to another car of
+     * the same type that is free for the whole booking. Bookings that no
+     * other car can take stay on the retired car and are returned, so they
+     * can be honoured or followed up; calling this again later retries
+     * moving them. Archived bookings stay in the car's history.
+     * 
+     * @param carId the id of the car to retire
+     * @return the bookings that could not be moved, in start-time order
+     * @throws IllegalArgumentException if the car is not in this service
+     */
+    public List<Reservation> retireCar(String carId) {
+        CarSchedule schedule = schedule(carId);
+        if (schedule == null) {
+            throw new IllegalArgumentException("Unknown car " + carId);
+        }
+        List<Reservation> stranded = new ArrayList<>();
+        fleetLock.lock();
+        try {
+            if (journal != null && !schedule.isRetired()) {
+                journal.recordCarRetired(schedule.getCar().getIndex());
+            }
+            List<Reservation> bookings = schedule.retire();
+            availabilityCache.invalidateAll(schedule.getCar().getType());
+            for (Reservation reservation : bookings) {
+                if (!reassign(schedule, reservation)
+                        && reservations.find(reservation.getNumericId()) == reservation) {
+                    stranded.add(reservation);
+                }
+            }
+        } finally {
+            fleetLock.unlock();
+        }
+        return stranded;
+    }
+
+    /**
+     * Moves a booking off a retired car onto a free car of its type. The
+     * copy is claimed on the new car first and then swapped in by id, so a
+     * concurrent cancel either finds the original, and the copy is dropped
+     * again, or finds the copy.
+     * 
+     * @return true if the booking no longer needs moving
+     */
+    private boolean reassign(CarSchedule from, Reservation reservation) {
+        CarType type = reservation.getCarType();
+        long startSecond = reservation.getStartEpochSecond();
+        long endSecond = reservation.getEndEpochSecond();
+        List<CarSchedule> pool = pool(type);
+        Iterator<CarSchedule> candidates = allocators.get(type).candidates(pool, startSecond, endSecond);
+        while (candidates.hasNext()) {
+            CarSchedule target = candidates.next();
+            if (!target.isFree(startSecond, endSecond)) {
+                continue;
+            }
+            Reservation moved = new Reservation(reservation.getNumericId(), target.getCar().getIndex(), type,
+                    reservation.getStart(), reservation.getNumberOfDays());
+            if (!target.tryMoveIn(moved)) {
+                continue;
+            }
+            if (reservations.replace(reservation, moved)) {
+                from.remove(reservation);
+                if (journal != null) {
+                    journal.recordReassigned(moved);
+                }
+                publish(ReservationEvent.Kind.REASSIGNED, moved);
+            } else {
+                // cancelled while we were moving it
+                target.remove(moved);
+            }
+            availabilityCache.invalidate(type, startSecond, endSecond);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the live hot-path metrics of this service: per-operation latency
+     * histograms, booking outcomes per car type, cars scanned per check,
+     * and car lock contention.
+     * 
+     * @return the metrics, updated in place as the service is used
+     */
+    public ServiceMetrics getMetrics() {
+        return metrics;
     }
 }
\ No newline at end of file
@@ -0,0 +1,537 @@
+package com.example.carrental.service;
+
+import com.example.carrental.domain.Car;
+import com.example.carrental.domain.CarType;
+import com.example.carrental.domain.IdGenerator;
+import com.example.carrental.domain.Reservation;
+import com.example.carrental.metrics.ServiceMetrics;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Per-car index of reservations, ordered by start time.
+ *
+ * Reservations on the same car never overlap, so once they are sorted by
+ * start they are also sorted by end. That means the only booking that can
+ * collide with a requested window is the last one starting before the
+ * window ends, and an availability check becomes a binary search over this
+ * car's own bookings instead of a scan over every reservation in the system.
+ *
+ * Bookings are held as parallel primitive arrays of epoch seconds so the
+ * check allocates nothing. A car only ever has a handful of bookings, so
+ * writers copy this car's arrays and publish the new version through a
+ * volatile field.
+ *
+ * Reads are lock-free. Writes take this car's own lock, so the check and
+ * the claim in {@link #tryReserve} happen atomically while bookings on
+ * different cars never contend with each other.
+ */
+class CarSchedule {
+
+    private static final Timeline EMPTY = new Timeline(new long[0], new long[0], new Reservation[0]);
+
+    private final Car car;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ServiceMetrics metrics;
+    // the pool's allocation index, told about every booking and release
+    private final CarAllocator allocator;
+    // cars of this car's type in service, shared by the pool
+    private final AtomicInteger activeCars;
+    private volatile Timeline timeline = EMPTY;
+    // bookings moved out of the timeline once they ended, in start order
+    private volatile Reservation[] archived = new Reservation[0];
+    // day bitmap kept in step with the timeline, when the service has one
+    private volatile OccupancyEngine.CarOccupancy occupancy;
+    // set once the car leaves the fleet; it then takes no new bookings
+    private volatile boolean retired;
+
+    /**
+     * Creates the schedule of an empty car. The car is not offered for
+     * bookings until the caller registers it with the allocator, and is
+     * not counted in {@code activeCars} until the caller counts it.
+     */
+    CarSchedule(Car car, ServiceMetrics metrics, CarAllocator allocator, AtomicInteger activeCars) {
+        this.car = car;
+        this.metrics = metrics;
+        this.allocator = allocator;
+        this.activeCars = activeCars;
+    }
+
+    Car getCar() {
+        return car;
+    }
+
+    OccupancyEngine.CarOccupancy getOccupancy() {
+        return occupancy;
+    }
+
+    /**
+     * Replaces the day bitmap kept for this car. Caller holds the lock, so
+     * the bitmap is built from and published against a stable timeline.
+     */
+    void setOccupancy(OccupancyEngine.CarOccupancy occupancy) {
+        this.occupancy = occupancy;
+    }
+
+    /**
+     * Checks whether this car is free for the whole requested window.
+     *
+     * @param start the window start in epoch seconds, inclusive
+     * @param end   the window end in epoch seconds, exclusive
+     * @return true if no booking on this car overlaps the window; never
+     *         true once the car is retired
+     */
+    boolean isFree(long start, long end) {
+        if (retired) {
+            return false;
+        }
+        Timeline current = timeline;
+        int previous = current.lastStartingBefore(end);
+        return previous < 0 || current.ends[previous] <= start;
+    }
+
+    /**
+     * Holds this car's write lock across several operations, e.g. while a
+     * group booking is claimed. Callers taking more than one car lock must
+     * acquire them in car index order to avoid deadlock.
+     */
+    void lock() {
+        acquire();
+    }
+
+    /**
+     * Takes the write lock, timing the wait only when another thread
+     * already holds it so the uncontended path stays a single CAS.
+     */
+    private void acquire() {
+        if (lock.tryLock()) {
+            metrics.recordLockAcquired(0);
+            return;
+        }
+        long startNanos = System.nanoTime();
+        lock.lock();
+        metrics.recordLockAcquired(System.nanoTime() - startNanos);
+    }
+
+    void unlock() {
+        lock.unlock();
+    }
+
+    /**
+     * Atomically checks that the window is still free and books it.
+     *
+     * @param ids   the generator for the new reservation's id
+     * @param type  the car type recorded on the reservation
+     * @param start the start time
+     * @param days  the number of days
+     * @return the new reservation, or null if another booking got there first
+     */
+    Reservation tryReserve(IdGenerator ids, CarType type, LocalDateTime start, int days) {
+        acquire();
+        try {
+            long startSecond = Reservation.toEpochSecond(start);
+            if (!isFree(startSecond, startSecond + days * Reservation.SECONDS_PER_DAY)) {
+                return null;
+            }
+            Reservation reservation = new Reservation(ids.next(), car.getIndex(), type, start, days);
+            insert(reservation);
+            return reservation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Atomically checks that the window is still free and takes over a
+     * booking moved here from a retired car, keeping its id.
+     *
+     * @param reservation the booking, already pointing at this car
+     * @return true if it was placed, false if the window is taken
+     */
+    boolean tryMoveIn(Reservation reservation) {
+        acquire();
+        try {
+            if (!isFree(reservation.getStartEpochSecond(), reservation.getEndEpochSecond())) {
+                return false;
+            }
+            insert(reservation);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes this car out of service. From now on it is never free, so it is
+     * skipped by every check and claim, and it leaves the allocation index
+     * and counts as busy on every day of the occupancy bitmaps. Its current
+     * bookings stay until the caller moves or cancels them.
+     *
+     * @return the live bookings still on the car, in start-time order
+     */
+    List<Reservation> retire() {
+        acquire();
+        try {
+            Timeline current = timeline;
+            if (!retired) {
+                retired = true;
+                activeCars.decrementAndGet();
+                int bookings = current.starts.length;
+                long[] gapStarts = new long[bookings + 1];
+                long[] gapEnds = new long[bookings + 1];
+                for (int i = 0; i <= bookings; i++) {
+                    gapStarts[i] = current.endBefore(i);
+                    gapEnds[i] = i < bookings ? current.starts[i] : Long.MAX_VALUE;
+                }
+                allocator.retired(this, gapStarts, gapEnds);
+                OccupancyEngine.CarOccupancy days = occupancy;
+                if (days != null) {
+                    days.retired();
+                }
+            }
+            return Arrays.asList(current.reservations);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isRetired() {
+        return retired;
+    }
+
+    /**
+     * Puts back the live reservations recovered from persistent storage, at
+     * startup before the car has any booking. The timeline is built in one
+     * pass rather than copied once per booking.
+     *
+     * @param recovered the car's reservations in start-time order
+     * @throws IllegalStateException if two of them overlap
+     */
+    void restore(List<Reservation> recovered) {
+        acquire();
+        try {
+            int count = recovered.size();
+            long[] starts = new long[count];
+            long[] ends = new long[count];
+            Reservation[] reservations = recovered.toArray(new Reservation[0]);
+            for (int i = 0; i < count; i++) {
+                starts[i] = reservations[i].getStartEpochSecond();
+                ends[i] = reservations[i].getEndEpochSecond();
+                if (i > 0 && starts[i] < ends[i - 1]) {
+                    throw new IllegalStateException("Recovered reservation overlaps another booking: "
+                            + reservations[i]);
+                }
+            }
+            timeline = new Timeline(starts, ends, reservations);
+            OccupancyEngine.CarOccupancy days = occupancy;
+            for (int i = 0; i < count; i++) {
+                // in start order each one lands in the open gap after the one before
+                allocator.booked(this, i > 0 ? ends[i - 1] : Long.MIN_VALUE, Long.MAX_VALUE, starts[i], ends[i]);
+                if (days != null) {
+                    days.booked(starts[i], ends[i]);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Puts archived reservations recovered from a journal back into this
+     * car's archive, at startup before the service is shared.
+     *
+     * @param recovered the car's archived reservations in start-time order
+     */
+    void restoreArchived(List<Reservation> recovered) {
+        acquire();
+        try {
+            Reservation[] grown = Arrays.copyOf(archived, archived.length + recovered.size());
+            for (int i = 0; i < recovered.size(); i++) {
+                grown[archived.length + i] = recovered.get(i);
+            }
+            archived = grown;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return whether the reservation is in this car's live timeline
+     */
+    boolean holds(Reservation reservation) {
+        return timeline.indexOf(reservation) >= 0;
+    }
+
+    boolean remove(Reservation reservation) {
+        acquire();
+        try {
+            Timeline current = timeline;
+            int index = current.indexOf(reservation);
+            if (index < 0) {
+                return false;
+            }
+            timeline = current.without(index);
+            if (retired) {
+                // out of the index and busy in the bitmaps for good
+                return true;
+            }
+            allocator.released(this, current.endBefore(index), current.startAfter(index),
+                    reservation.getStartEpochSecond(), reservation.getEndEpochSecond());
+            OccupancyEngine.CarOccupancy days = occupancy;
+            if (days != null) {
+                days.released(reservation.getStartEpochSecond(), reservation.getEndEpochSecond(), this);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a booking already checked to be free. Caller holds the lock, and
+     * the car is not retired.
+     */
+    private void insert(Reservation reservation) {
+        Timeline current = timeline;
+        int previous = current.lastStartingBefore(reservation.getStartEpochSecond());
+        timeline = current.with(reservation);
+        allocator.booked(this, current.endBefore(previous + 1), current.startAfter(previous),
+                reservation.getStartEpochSecond(), reservation.getEndEpochSecond());
+        OccupancyEngine.CarOccupancy days = occupancy;
+        if (days != null) {
+            days.booked(reservation.getStartEpochSecond(), reservation.getEndEpochSecond());
+        }
+    }
+
+    /**
+     * Adds this car's occupancy to a bucketed timeline. For every bucket in
+     * which the car is booked for at least part of the time, the bucket is
+     * marked busy exactly once, even if several bookings touch it. Marks
+     * are recorded as +1/-1 pairs in a difference array so the caller can
+     * sweep all cars of a type and prefix-sum once. A retired car is busy
+     * in every bucket.
+     *
+     * @param from          start of the first bucket in epoch seconds
+     * @param bucketSeconds length of each bucket in seconds
+     * @param busyDelta     difference array with one slot per bucket plus one
+     */
+    void addBusyBuckets(long from, long bucketSeconds, int[] busyDelta) {
+        Timeline current = timeline;
+        int buckets = busyDelta.length - 1;
+        if (retired) {
+            busyDelta[0]++;
+            busyDelta[buckets]--;
+            return;
+        }
+        long to = from + buckets * bucketSeconds;
+        int coveredUntil = 0;
+        // ends are sorted too, so skip straight to the first booking that
+        // ends after the window opens
+        for (int i = current.firstEndingAfter(from); i < current.starts.length && current.starts[i] < to; i++) {
+            int first = (int) Math.max(coveredUntil, Math.floorDiv(current.starts[i] - from, bucketSeconds));
+            int last = (int) Math.min(buckets, -Math.floorDiv(from - current.ends[i], bucketSeconds));
+            if (first < last) {
+                busyDelta[first]++;
+                busyDelta[last]--;
+                coveredUntil = last;
+            }
+        }
+    }
+
+    /**
+     * Moves every booking that ended at or before the cutoff out of the
+     * timeline into this car's archive, so live checks no longer search
+     * past them. Since ends are sorted, they are always a prefix of the
+     * timeline.
+     *
+     * Each one is claimed from the live store under this car's lock. One
+     * that is on the timeline but not in the store is mid-way through a
+     * cancel waiting on its journal write, or a booking not yet added to
+     * the store. Either may still be put back or go ahead, so the sweep
+     * stops there, leaving it and everything after it live for the next
+     * sweep.
+     *
+     * @param cutoff the cutoff in epoch seconds
+     * @param store  the live reservations of the service
+     * @return the reservations archived
+     */
+    List<Reservation> archiveEndedBefore(long cutoff, ReservationStore store) {
+        acquire();
+        try {
+            Timeline current = timeline;
+            int ending = current.firstEndingAfter(cutoff);
+            int ended = 0;
+            while (ended < ending && store.remove(current.reservations[ended].getNumericId()) != null) {
+                ended++;
+            }
+            if (ended == 0) {
+                return List.of();
+            }
+            List<Reservation> moved = new ArrayList<>(ended);
+            for (int i = 0; i < ended; i++) {
+                if (!retired) {
+                    allocator.released(this, Long.MIN_VALUE, current.startAfter(i),
+                            current.starts[i], current.ends[i]);
+                }
+                moved.add(current.reservations[i]);
+            }
+            timeline = current.withoutFirst(ended);
+            OccupancyEngine.CarOccupancy days = occupancy;
+            if (days != null && !retired) {
+                days.released(current.starts[0], current.ends[ended - 1], this);
+            }
+            Reservation[] grown = Arrays.copyOf(archived, archived.length + moved.size());
+            for (int i = 0; i < moved.size(); i++) {
+                grown[archived.length + i] = moved.get(i);
+            }
+            archived = grown;
+            return moved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the reservations on this car in start-time order
+     */
+    List<Reservation> getReservations() {
+        return new ArrayList<>(Arrays.asList(timeline.reservations));
+    }
+
+    /**
+     * @return the reservations on this car in start-time order, streamed
+     *         from the current immutable timeline without copying
+     */
+    Stream<Reservation> streamReservations() {
+        return Arrays.stream(timeline.reservations);
+    }
+
+    /**
+     * @return the archived reservations on this car in start-time order
+     */
+    List<Reservation> getArchivedReservations() {
+        return new ArrayList<>(Arrays.asList(archived));
+    }
+
+    /**
+     * Immutable snapshot of one car's bookings, sorted by start.
+     */
+    private static final class Timeline {
+        final long[] starts;
+        final long[] ends;
+        final Reservation[] reservations;
+
+        Timeline(long[] starts, long[] ends, Reservation[] reservations) {
+            this.starts = starts;
+            this.ends = ends;
+            this.reservations = reservations;
+        }
+
+        /**
+         * @return the index of the last booking starting before the given
+         *         time, or -1 if there is none
+         */
+        int lastStartingBefore(long time) {
+            int low = 0;
+            int high = starts.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid] < time) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return high;
+        }
+
+        /**
+         * @return the index of the first booking ending after the given
+         *         time, or the number of bookings if there is none
+         */
+        int firstEndingAfter(long time) {
+            int low = 0;
+            int high = ends.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (ends[mid] <= time) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @return the end of the booking before the given index, or
+         *         Long.MIN_VALUE if there is none
+         */
+        long endBefore(int index) {
+            return index > 0 ? ends[index - 1] : Long.MIN_VALUE;
+        }
+
+        /**
+         * @return the start of the booking after the given index, or
+         *         Long.MAX_VALUE if there is none
+         */
+        long startAfter(int index) {
+            return index + 1 < starts.length ? starts[index + 1] : Long.MAX_VALUE;
+        }
+
+        int indexOf(Reservation reservation) {
+            int index = lastStartingBefore(reservation.getStartEpochSecond() + 1);
+            return index >= 0 && reservations[index] == reservation ? index : -1;
+        }
+
+        Timeline with(Reservation reservation) {
+            int at = lastStartingBefore(reservation.getStartEpochSecond()) + 1;
+            int size = starts.length;
+            long[] newStarts = new long[size + 1];
+            long[] newEnds = new long[size + 1];
+            Reservation[] newReservations = new Reservation[size + 1];
+            System.arraycopy(starts, 0, newStarts, 0, at);
+            System.arraycopy(ends, 0, newEnds, 0, at);
+            System.arraycopy(reservations, 0, newReservations, 0, at);
+            newStarts[at] = reservation.getStartEpochSecond();
+            newEnds[at] = reservation.getEndEpochSecond();
+            newReservations[at] = reservation;
+            System.arraycopy(starts, at, newStarts, at + 1, size - at);
+            System.arraycopy(ends, at, newEnds, at + 1, size - at);
+            System.arraycopy(reservations, at, newReservations, at + 1, size - at);
+            return new Timeline(newStarts, newEnds, newReservations);
+        }
+
+        Timeline withoutFirst(int count) {
+            if (count == starts.length) {
+                return EMPTY;
+            }
+            return new Timeline(Arrays.copyOfRange(starts, count, starts.length),
+                    Arrays.copyOfRange(ends, count, ends.length),
+                    Arrays.copyOfRange(reservations, count, reservations.length));
+        }
+
+        Timeline without(int index) {
+            int size = starts.length;
+            if (size == 1) {
+                return EMPTY;
+            }
+            long[] newStarts = new long[size - 1];
+            long[] newEnds = new long[size - 1];
+            Reservation[] newReservations = new Reservation[size - 1];
+            System.arraycopy(starts, 0, newStarts, 0, index);
+            System.arraycopy(ends, 0, newEnds, 0, index);
+            System.arraycopy(reservations, 0, newReservations, 0, index);
+            System.arraycopy(starts, index + 1, newStarts, index, size - index - 1);
+            System.arraycopy(ends, index + 1, newEnds, index, size - index - 1);
+            System.arraycopy(reservations, index + 1, newReservations, index, size - index - 1);
+            return new Timeline(newStarts, newEnds, newReservations);
+        }
+    }
+}
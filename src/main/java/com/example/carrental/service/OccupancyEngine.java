@@ -0,0 +1,310 @@
+package com.example.carrental.service;
+
+import com.example.carrental.domain.CarType;
+import com.example.carrental.domain.Reservation;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Day-granular occupancy bitmaps over a fixed horizon, answering
+ * whole-day availability questions with word-level bit operations instead
+ * of interval comparisons.
+ *
+ * Each car has one bit per day of the horizon, set while any booking on
+ * the car overlaps any part of that day. For a window made of whole days
+ * a car is free exactly when none of the window's bits are set, however
+ * the bookings themselves are aligned, so counting free cars is one masked
+ * AND per 64 days per car. Windows that don't start at midnight, or that
+ * leave the horizon, are not answered here and fall back to the exact
+ * interval check.
+ *
+ * Each type also keeps, per day, how many of its cars are busy, and a
+ * "fully booked" mask with a bit per day on which every car of the type
+ * is busy. Any fully booked day inside a window rules out every car for
+ * it, so sold-out windows are answered without looking at a single car.
+ * The free count of a one-day window is the type's cars less that day's
+ * busy count, and a window on which no car is busy at all has every car
+ * free, so those are answered per day rather than per car too. Only a
+ * longer window that is partly booked still tests each car's bits.
+ *
+ * A car's bits change only under that car's lock, right after its
+ * timeline does. The per-type counts and masks are shared by the cars of
+ * the type and updated with atomics. Readers take no locks and, like the
+ * interval scan, see each car as of some moment during the query.
+ *
+ * Rolling the horizon marks the old engine replaced, then builds a new one
+ * and swaps each car over to it under that car's lock alone. A reader
+ * still holding the old engine gives up, returning -1, as soon as it meets
+ * a car already on the new one or finds the old engine replaced, so it
+ * never mixes day offsets of the two horizons. The new engine is only
+ * handed to readers once every car is on it.
+ */
+class OccupancyEngine {
+
+    private final long firstDay;
+    private final int horizonDays;
+    private final Map<CarType, TypeOccupancy> types = new EnumMap<>(CarType.class);
+    // set once a rebuild has replaced this engine, before any car's new
+    // bitmap can change; from then on this engine's masks go stale
+    private volatile boolean replaced;
+
+    OccupancyEngine(LocalDate horizonStart, int horizonDays, Map<CarType, ? extends List<CarSchedule>> fleet) {
+        this.firstDay = horizonStart.toEpochDay();
+        this.horizonDays = horizonDays;
+        fleet.forEach((type, pool) -> types.put(type, new TypeOccupancy(pool.size(), horizonDays)));
+    }
+
+    /**
+     * Builds the bitmap of a car already counted in its type from its
+     * current bookings. Caller holds the car's lock.
+     */
+    CarOccupancy attach(CarSchedule schedule) {
+        CarOccupancy occupancy = new CarOccupancy(types.get(schedule.getCar().getType()));
+        if (schedule.isRetired()) {
+            occupancy.retired();
+        } else {
+            schedule.streamReservations()
+                    .forEach(r -> occupancy.booked(r.getStartEpochSecond(), r.getEndEpochSecond()));
+        }
+        return occupancy;
+    }
+
+    /**
+     * Counts a new, empty car in its type and builds its bitmap. Called
+     * before the car is published, so no query can count it yet.
+     */
+    CarOccupancy added(CarSchedule schedule) {
+        TypeOccupancy type = types.get(schedule.getCar().getType());
+        type.carAdded();
+        return new CarOccupancy(type);
+    }
+
+    /**
+     * Counts the cars of a pool free for a whole-day window.
+     *
+     * @param startSecond the window start in epoch seconds
+     * @param days        the number of days in the window
+     * @return the number of free cars, or -1 if the window doesn't start at
+     *         midnight, isn't inside the horizon, or this engine was
+     *         replaced during the count
+     */
+    int countFree(CarType type, List<CarSchedule> pool, long startSecond, int days) {
+        int from = horizonOffset(startSecond, days);
+        if (from < 0) {
+            return -1;
+        }
+        int to = from + days;
+        TypeOccupancy typeOccupancy = types.get(type);
+        int free = 0;
+        if (typeOccupancy == null || anySet(typeOccupancy.fullyBooked, from, to)) {
+            // sold out on some day of the window
+        } else if (days == 1 || typeOccupancy.busiest(from, to) == 0) {
+            free = typeOccupancy.cars - typeOccupancy.busiest(from, to);
+        } else {
+            for (CarSchedule schedule : pool) {
+                CarOccupancy occupancy = schedule.getOccupancy();
+                if (occupancy == null || occupancy.engine() != this) {
+                    // detached or moved to a new horizon by a concurrent
+                    // rebuild; its bits use other offsets, so let the caller scan
+                    return -1;
+                }
+                if (!anySet(occupancy.busyDays, from, to)) {
+                    free++;
+                }
+            }
+        }
+        // checked last: if not yet replaced, no car's new bitmap had
+        // changed while the masks above were read
+        return replaced ? -1 : free;
+    }
+
+    /**
+     * Marks this engine as superseded by a rebuild. Called before the first
+     * car moves to the new engine, so before any booking touches the new
+     * bitmaps.
+     */
+    void replace() {
+        replaced = true;
+    }
+
+    /**
+     * @return the window's first day as an offset into the horizon, or -1
+     *         if it doesn't start at midnight or doesn't fit the horizon
+     */
+    private int horizonOffset(long startSecond, int days) {
+        if (days <= 0 || Math.floorMod(startSecond, Reservation.SECONDS_PER_DAY) != 0) {
+            return -1;
+        }
+        long offset = Math.floorDiv(startSecond, Reservation.SECONDS_PER_DAY) - firstDay;
+        return offset >= 0 && offset + days <= horizonDays ? (int) offset : -1;
+    }
+
+    /**
+     * @return whether any bit in {@code [from, to)} is set
+     */
+    static boolean anySet(AtomicLongArray bits, int from, int to) {
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        for (int word = firstWord; word <= lastWord; word++) {
+            long mask = -1L;
+            if (word == firstWord) {
+                mask &= -1L << (from & 63);
+            }
+            if (word == lastWord) {
+                mask &= -1L >>> (63 - ((to - 1) & 63));
+            }
+            if ((bits.get(word) & mask) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static AtomicLongArray bitmap(int days) {
+        return new AtomicLongArray((days + 63) >>> 6);
+    }
+
+    /**
+     * Per-type busy counts and fully booked mask.
+     */
+    private static final class TypeOccupancy {
+        // only raised, under the service's fleet lock
+        volatile int cars;
+        final AtomicIntegerArray busyCars;
+        final AtomicLongArray fullyBooked;
+
+        TypeOccupancy(int cars, int days) {
+            this.cars = cars;
+            this.busyCars = new AtomicIntegerArray(days);
+            this.fullyBooked = bitmap(days);
+        }
+
+        /**
+         * @return the most cars busy on any one day of {@code [from, to)}
+         */
+        int busiest(int from, int to) {
+            int busiest = 0;
+            for (int day = from; day < to; day++) {
+                busiest = Math.max(busiest, busyCars.get(day));
+            }
+            return busiest;
+        }
+
+        void carBusy(int day, int delta) {
+            busyCars.addAndGet(day, delta);
+            refresh(day);
+        }
+
+        void carAdded() {
+            cars++;
+            // the new car is free every day, so no day is fully booked now
+            for (int day = 0; day < busyCars.length(); day++) {
+                refresh(day);
+            }
+        }
+
+        private void refresh(int day) {
+            // two cars changing the same day can race on the mask word;
+            // retry until the bit agrees with counts that didn't move
+            // under us, so the last writer always leaves it correct
+            int word = day >>> 6;
+            long bit = 1L << (day & 63);
+            while (true) {
+                int busy = busyCars.get(day);
+                int total = cars;
+                long current = fullyBooked.get(word);
+                long updated = busy >= total ? current | bit : current & ~bit;
+                if ((updated == current || fullyBooked.compareAndSet(word, current, updated))
+                        && busyCars.get(day) == busy && cars == total) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * One car's day bitmap. Only changed while holding the car's lock.
+     */
+    final class CarOccupancy {
+        private final TypeOccupancy type;
+        private final AtomicLongArray busyDays = bitmap(horizonDays);
+
+        private CarOccupancy(TypeOccupancy type) {
+            this.type = type;
+        }
+
+        OccupancyEngine engine() {
+            return OccupancyEngine.this;
+        }
+
+        /**
+         * Marks every day that {@code [start, end)} touches as busy.
+         */
+        void booked(long start, long end) {
+            markBusy(firstDayTouched(start), endDayTouched(end));
+        }
+
+        private void markBusy(int from, int to) {
+            for (int day = from; day < to; day++) {
+                int word = day >>> 6;
+                long bit = 1L << (day & 63);
+                long current = busyDays.get(word);
+                if ((current & bit) == 0) {
+                    busyDays.set(word, current | bit);
+                    type.carBusy(day, 1);
+                }
+            }
+        }
+
+        /**
+         * Clears the days {@code [start, end)} touched that the car's
+         * remaining bookings leave completely free.
+         */
+        void released(long start, long end, CarSchedule schedule) {
+            int to = endDayTouched(end);
+            for (int day = firstDayTouched(start); day < to; day++) {
+                long dayStart = (firstDay + day) * Reservation.SECONDS_PER_DAY;
+                int word = day >>> 6;
+                long bit = 1L << (day & 63);
+                long current = busyDays.get(word);
+                if ((current & bit) != 0 && schedule.isFree(dayStart, dayStart + Reservation.SECONDS_PER_DAY)) {
+                    busyDays.set(word, current & ~bit);
+                    type.carBusy(day, -1);
+                }
+            }
+        }
+
+        /**
+         * Marks every day of the horizon busy, for a car that has left the
+         * fleet. Its bits never change again.
+         */
+        void retired() {
+            markBusy(0, horizonDays);
+        }
+
+        /**
+         * @return the horizon offset of the day holding {@code start},
+         *         clipped to the horizon
+         */
+        private int firstDayTouched(long start) {
+            return clip(Math.floorDiv(start, Reservation.SECONDS_PER_DAY) - firstDay);
+        }
+
+        /**
+         * @return the horizon offset just past the last day {@code end}
+         *         reaches into, clipped to the horizon
+         */
+        private int endDayTouched(long end) {
+            return clip(-Math.floorDiv(-end, Reservation.SECONDS_PER_DAY) - firstDay);
+        }
+
+        private int clip(long offset) {
+            return (int) Math.max(0, Math.min(offset, horizonDays));
+        }
+    }
+}
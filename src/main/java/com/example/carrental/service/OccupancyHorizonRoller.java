@@ -0,0 +1,90 @@
+package com.example.carrental.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background task that keeps the occupancy engine's horizon starting
+ * today, so whole-day windows keep being answered from the bitmaps as
+ * time moves on instead of silently falling back to the interval check
+ * once the horizon has passed.
+ *
+ * Rolls once when started and then just after each midnight in the
+ * clock's zone, on a single daemon thread. A roll that fails is logged
+ * and retried at the next midnight rather than stopping the schedule.
+ */
+public class OccupancyHorizonRoller implements AutoCloseable {
+
+    private static final System.Logger LOG = System.getLogger(OccupancyHorizonRoller.class.getName());
+
+    private final CarRentalService service;
+    private final int horizonDays;
+    private final Clock clock;
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Enables the occupancy engine from today and starts rolling it daily.
+     *
+     * @param service     the service whose horizon to roll
+     * @param horizonDays the number of days covered from today on
+     * @param clock       the clock deciding what "today" is
+     */
+    public OccupancyHorizonRoller(CarRentalService service, int horizonDays, Clock clock) {
+        if (horizonDays <= 0) {
+            throw new IllegalArgumentException("Horizon must be at least one day");
+        }
+        this.service = service;
+        this.horizonDays = horizonDays;
+        this.clock = clock;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "occupancy-horizon-roller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        roll();
+        scheduleNext();
+    }
+
+    /**
+     * Moves the horizon to start today.
+     *
+     * @return the first day now covered, or null if the roll failed
+     */
+    public LocalDate roll() {
+        LocalDate today = LocalDate.now(clock);
+        try {
+            service.enableOccupancyEngine(today, horizonDays);
+            return today;
+        } catch (RuntimeException e) {
+            LOG.log(System.Logger.Level.WARNING, "Occupancy horizon roll failed", e);
+            return null;
+        }
+    }
+
+    /**
+     * Schedules the next roll for the coming midnight, worked out afresh
+     * each day so days of 23 or 25 hours don't make it drift.
+     */
+    private void scheduleNext() {
+        if (executor.isShutdown()) {
+            return;
+        }
+        ZonedDateTime now = ZonedDateTime.now(clock);
+        ZonedDateTime midnight = now.toLocalDate().plusDays(1).atStartOfDay(clock.getZone());
+        long delay = Math.max(0, Duration.between(now, midnight).toMillis());
+        executor.schedule(() -> {
+            roll();
+            scheduleNext();
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.carrental.service;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fork-join scans over one pool of cars, for pools large enough that a
+ * single core checking every car becomes the bottleneck.
+ *
+ * The pool is split in halves down to leaves of {@link #LEAF_SIZE} cars,
+ * each checked sequentially with the same lock-free {@link CarSchedule#isFree}
+ * the sequential path uses. Scans only read; claiming a car found free is
+ * left to the caller, still under that car's lock, so a parallel search can
+ * never hand one car to two bookings.
+ */
+final class ParallelScan {
+
+    // cars checked sequentially per task; small enough to balance, large
+    // enough that a leaf costs far more than forking it
+    static final int LEAF_SIZE = 1024;
+
+    private ParallelScan() {
+    }
+
+    /**
+     * @param cars the pool, of which the first {@code size} cars are scanned
+     * @return the number of cars free for the whole window
+     */
+    static int countFree(ForkJoinPool executor, List<CarSchedule> cars, int size, long start, long end) {
+        return executor.invoke(new Count(cars, 0, size, start, end));
+    }
+
+    /**
+     * Finds the lowest-indexed free car at or after {@code from}, the same
+     * car a sequential first-fit walk would reach first. Leaves above a car
+     * already found are skipped.
+     *
+     * @return the index of that car in the pool, or -1 if none is free
+     */
+    static int firstFree(ForkJoinPool executor, List<CarSchedule> cars, int from, int size, long start, long end) {
+        AtomicInteger found = new AtomicInteger(Integer.MAX_VALUE);
+        executor.invoke(new FirstFree(cars, from, size, start, end, found));
+        int index = found.get();
+        return index == Integer.MAX_VALUE ? -1 : index;
+    }
+
+    private static final class Count extends RecursiveTask<Integer> {
+        private final List<CarSchedule> cars;
+        private final int from;
+        private final int to;
+        private final long start;
+        private final long end;
+
+        Count(List<CarSchedule> cars, int from, int to, long start, long end) {
+            this.cars = cars;
+            this.from = from;
+            this.to = to;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= LEAF_SIZE) {
+                int free = 0;
+                for (int i = from; i < to; i++) {
+                    if (cars.get(i).isFree(start, end)) {
+                        free++;
+                    }
+                }
+                return free;
+            }
+            int middle = (from + to) >>> 1;
+            Count left = new Count(cars, from, middle, start, end);
+            left.fork();
+            int right = new Count(cars, middle, to, start, end).compute();
+            return left.join() + right;
+        }
+    }
+
+    private static final class FirstFree extends RecursiveAction {
+        private final List<CarSchedule> cars;
+        private final int from;
+        private final int to;
+        private final long start;
+        private final long end;
+        private final AtomicInteger found;
+
+        FirstFree(List<CarSchedule> cars, int from, int to, long start, long end, AtomicInteger found) {
+            this.cars = cars;
+            this.from = from;
+            this.to = to;
+            this.start = start;
+            this.end = end;
+            this.found = found;
+        }
+
+        @Override
+        protected void compute() {
+            if (found.get() < from) {
+                return;
+            }
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to && i < found.get(); i++) {
+                    if (cars.get(i).isFree(start, end)) {
+                        found.accumulateAndGet(i, Math::min);
+                        break;
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            FirstFree right = new FirstFree(cars, middle, to, start, end, found);
+            right.fork();
+            new FirstFree(cars, from, middle, start, end, found).compute();
+            right.join();
+        }
+    }
+}
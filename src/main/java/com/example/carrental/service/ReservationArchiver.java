@@ -0,0 +1,67 @@
+package com.example.carrental.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background sweeper that periodically archives reservations which have
+ * already ended, keeping the service's live structures proportional to
+ * active bookings rather than to total history.
+ *
+ * Runs on a single daemon thread. A sweep that fails is logged and
+ * retried on the next tick rather than stopping the schedule.
+ */
+public class ReservationArchiver implements AutoCloseable {
+
+    private static final System.Logger LOG = System.getLogger(ReservationArchiver.class.getName());
+
+    private final CarRentalService service;
+    private final Clock clock;
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Starts sweeping immediately and then every {@code interval}.
+     *
+     * @param service  the service to sweep
+     * @param interval the time between sweeps
+     * @param clock    the clock deciding what "ended" means; reservation
+     *                 times are read in its zone
+     */
+    public ReservationArchiver(CarRentalService service, Duration interval, Clock clock) {
+        if (interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Archive interval must be positive");
+        }
+        this.service = service;
+        this.clock = clock;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reservation-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::sweep, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Archives everything that has ended by now.
+     *
+     * @return the number of reservations archived
+     */
+    public int sweep() {
+        try {
+            return service.archiveEndedBefore(LocalDateTime.now(clock));
+        } catch (RuntimeException e) {
+            // an exception would cancel the schedule; keep sweeping instead
+            LOG.log(System.Logger.Level.WARNING, "Reservation archive sweep failed", e);
+            return 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.carrental.service;
+
+import com.example.carrental.domain.CarType;
+import com.example.carrental.domain.Reservation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * System-wide store of live reservations.
+ *
+ * Backed by a concurrent skip list ordered by start time (then id), so
+ * inserts and removals are O(log n) and never copy the whole collection
+ * the way a CopyOnWriteArrayList does on every write. Readers iterate
+ * without locking; iteration is weakly consistent, reflecting every
+ * reservation that was stored before it began and none that were removed.
+ *
+ * A second skip list per car type holds the same reservations in the same
+ * order, so a query for one type walks only that type's bookings however
+ * rare the type is.
+ *
+ * A hash index on reservation id makes lookup and removal by id O(1).
+ * The id index is the source of truth for membership: removal claims the
+ * id there first, so concurrent cancels of the same reservation can only
+ * succeed once. A writer that finds its id gone after updating the ordered
+ * sets takes its entries back out, so they never keep a removed booking.
+ */
+class ReservationStore {
+
+    static final Comparator<Reservation> BY_START =
+            Comparator.comparing(Reservation::getStart).thenComparingLong(Reservation::getNumericId);
+
+    private final NavigableSet<Reservation> reservations = new ConcurrentSkipListSet<>(BY_START);
+    private final Map<CarType, NavigableSet<Reservation>> byType = new EnumMap<>(CarType.class);
+    private final Map<Long, Reservation> byId = new ConcurrentHashMap<>();
+    // longest booking ever stored, so a window scan knows how far before
+    // the window an overlapping booking can start
+    private volatile int maxNumberOfDays;
+
+    ReservationStore() {
+        for (CarType type : CarType.values()) {
+            byType.put(type, new ConcurrentSkipListSet<>(BY_START));
+        }
+    }
+
+    void add(Reservation reservation) {
+        byId.put(reservation.getNumericId(), reservation);
+        reservations.add(reservation);
+        byType.get(reservation.getCarType()).add(reservation);
+        if (byId.get(reservation.getNumericId()) != reservation) {
+            // removed before the ordered sets caught up; don't resurrect it
+            unlink(reservation);
+        }
+        if (reservation.getNumberOfDays() > maxNumberOfDays) {
+            synchronized (this) {
+                maxNumberOfDays = Math.max(maxNumberOfDays, reservation.getNumberOfDays());
+            }
+        }
+    }
+
+    void addAll(List<Reservation> batch) {
+        batch.forEach(this::add);
+    }
+
+    /**
+     * Removes a reservation by id.
+     *
+     * @param reservationId the reservation id
+     * @return the removed reservation, or null if it was not stored
+     */
+    Reservation remove(long reservationId) {
+        Reservation reservation = byId.remove(reservationId);
+        if (reservation != null) {
+            unlink(reservation);
+        }
+        return reservation;
+    }
+
+    /**
+     * Swaps a stored reservation for an updated copy with the same id, e.g.
+     * one moved to another car. Claimed on the id index like a removal, so
+     * it fails if the reservation was cancelled or changed concurrently.
+     *
+     * @return true if {@code current} was stored and has been replaced
+     */
+    boolean replace(Reservation current, Reservation updated) {
+        if (!byId.replace(current.getNumericId(), current, updated)) {
+            return false;
+        }
+        // same start, id and type, so the two are equal in the ordered sets
+        unlink(current);
+        reservations.add(updated);
+        byType.get(updated.getCarType()).add(updated);
+        if (byId.get(updated.getNumericId()) != updated) {
+            // cancelled before the ordered sets caught up; don't resurrect it
+            unlink(updated);
+        }
+        return true;
+    }
+
+    private void unlink(Reservation reservation) {
+        reservations.remove(reservation);
+        byType.get(reservation.getCarType()).remove(reservation);
+    }
+
+    /**
+     * Looks up a reservation by id.
+     *
+     * @param reservationId the reservation id
+     * @return the reservation, or null if it is not stored
+     */
+    Reservation find(long reservationId) {
+        return byId.get(reservationId);
+    }
+
+    /**
+     * @return an upper bound on the length in days of any stored reservation
+     */
+    int getMaxNumberOfDays() {
+        return maxNumberOfDays;
+    }
+
+    /**
+     * Streams stored reservations in start-time order straight from the
+     * skip list, without copying. Weakly consistent like iteration.
+     *
+     * @param type  only reservations of this type are returned; null
+     *              streams every type
+     * @param after only reservations ordered after this one are returned;
+     *              null streams from the beginning
+     */
+    Stream<Reservation> streamAfter(CarType type, Reservation after) {
+        NavigableSet<Reservation> source = type == null ? reservations : byType.get(type);
+        return after == null ? source.stream() : source.tailSet(after, false).stream();
+    }
+
+    /**
+     * @return a copy of the stored reservations in start-time order
+     */
+    List<Reservation> snapshot() {
+        return new ArrayList<>(reservations);
+    }
+}
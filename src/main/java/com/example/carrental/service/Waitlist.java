@@ -0,0 +1,287 @@
+package com.example.carrental.service;
+
+import com.example.carrental.domain.CarType;
+import com.example.carrental.domain.Reservation;
+import com.example.carrental.exception.NoAvailableCarException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Requests for sold-out windows, queued per car type in arrival order and
+ * booked as soon as a cancellation frees overlapping capacity, so clients
+ * wait on a future instead of polling.
+ *
+ * Joining and matching a type's line both happen under that line's lock,
+ * and a waiter re-checks availability only after it is queued. A
+ * cancellation either frees its car before that re-check, or finds the
+ * waiter already in the line, so no freed window is ever missed. Lines
+ * are checked lock-free for emptiness first, so cancellations of types
+ * nobody waits for never take the lock.
+ *
+ * Matching runs on an executor, never on the thread that freed the
+ * capacity, so a cancellation costs the same however long the line is.
+ * Matching books cars and so may block on the journal; the default
+ * executor has threads of its own for that rather than borrowing shared
+ * pool workers.
+ * Windows freed while a type is being matched are merged and matched in
+ * one more pass, so a burst of cancellations never queues more than one
+ * task per type. Futures are completed after the lock is released.
+ *
+ * A line holds at most {@code capacity} waiters; joining a full line fails
+ * the future at once with {@link NoAvailableCarException}. Every waiter
+ * times out after {@code timeout} unless the caller bounds it sooner. A
+ * waiter whose future was cancelled or timed out leaves the line, and a
+ * booking matched to it at the same moment is released again. Waiters
+ * are keyed by arrival number, so one leaving costs O(log n) rather than
+ * a walk of the line.
+ */
+class Waitlist {
+
+    /**
+     * Attempts a booking, returning null on a miss.
+     */
+    @FunctionalInterface
+    interface Booker {
+        Reservation tryReserve(CarType type, LocalDateTime start, int days);
+    }
+
+    static final int DEFAULT_CAPACITY = 10_000;
+    static final Duration DEFAULT_TIMEOUT = Duration.ofHours(1);
+
+    private final Map<CarType, Line> lines = new EnumMap<>(CarType.class);
+    private final Booker booker;
+    private final Consumer<Reservation> release;
+    private final int capacity;
+    private final long timeoutMillis;
+    private volatile Executor executor;
+
+    Waitlist(Booker booker, Consumer<Reservation> release, int capacity, Duration timeout, Executor executor) {
+        this.booker = booker;
+        this.release = release;
+        this.capacity = capacity;
+        this.timeoutMillis = timeout.toMillis();
+        this.executor = executor;
+        for (CarType type : CarType.values()) {
+            lines.put(type, new Line());
+        }
+    }
+
+    void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Creates the executor matching runs on unless another is set. A
+     * line never has more than one matching task, so it holds at most
+     * one thread per car type, and threads left idle exit.
+     */
+    static Executor newDefaultExecutor() {
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "waitlist-matcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a request behind earlier waiters of its type.
+     *
+     * @return a future completed with the reservation once one is made,
+     *         or failed if the line is full or the wait times out
+     */
+    CompletableFuture<Reservation> join(CarType type, LocalDateTime start, int days) {
+        Line line = lines.get(type);
+        Waiter waiter;
+        Reservation reservation;
+        line.lock.lock();
+        try {
+            if (line.size.get() >= capacity) {
+                return CompletableFuture.failedFuture(
+                        new NoAvailableCarException("Waitlist for " + type + " is full"));
+            }
+            line.size.incrementAndGet();
+            waiter = new Waiter(++line.arrivals, start, days);
+            line.waiters.put(waiter.arrival, waiter);
+            // a cancellation between the caller's miss and now may have
+            // seen an empty line, so look once more while queued
+            reservation = booker.tryReserve(type, start, days);
+            if (reservation != null && leave(line, waiter)) {
+                line.waiters.remove(waiter.arrival);
+            }
+        } finally {
+            line.lock.unlock();
+        }
+        if (reservation != null) {
+            deliver(waiter, reservation);
+        } else {
+            waiter.future.whenComplete((booked, failure) -> {
+                if (failure != null && leave(line, waiter)) {
+                    line.waiters.remove(waiter.arrival);
+                }
+            });
+            waiter.future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        return waiter.future;
+    }
+
+    /**
+     * Schedules the capacity freed on a car of the given type to be offered
+     * to the waiters whose windows overlap it, in arrival order.
+     *
+     * @param start start of the freed interval in epoch seconds
+     * @param end   end of the freed interval in epoch seconds
+     */
+    void released(CarType type, long start, long end) {
+        Line line = lines.get(type);
+        if (line.waiters.isEmpty()) {
+            return;
+        }
+        line.freed.add(new long[] { start, end });
+        if (line.scheduled.compareAndSet(false, true)) {
+            executor.execute(() -> drain(type, line));
+        }
+    }
+
+    /**
+     * Matches every window freed so far in one pass over the line, and
+     * again for any freed meanwhile.
+     */
+    private void drain(CarType type, Line line) {
+        do {
+            long start = Long.MAX_VALUE;
+            long end = Long.MIN_VALUE;
+            for (long[] freed; (freed = line.freed.poll()) != null;) {
+                start = Math.min(start, freed[0]);
+                end = Math.max(end, freed[1]);
+            }
+            if (start < end) {
+                match(type, line, start, end);
+            }
+            line.scheduled.set(false);
+            // a window freed after the poll but before the flag was cleared
+            // found the task still scheduled, so pick it up here
+        } while (!line.freed.isEmpty() && line.scheduled.compareAndSet(false, true));
+    }
+
+    private void match(CarType type, Line line, long start, long end) {
+        List<Waiter> matched = new ArrayList<>();
+        List<Reservation> booked = new ArrayList<>();
+        line.lock.lock();
+        try {
+            // a window that just missed rules out every later window
+            // containing it, which is most of a line waiting on one peak
+            List<Waiter> missed = new ArrayList<>();
+            for (Iterator<Waiter> it = line.waiters.values().iterator(); it.hasNext();) {
+                Waiter waiter = it.next();
+                if (waiter.future.isDone()) {
+                    if (leave(line, waiter)) {
+                        it.remove();
+                    }
+                    continue;
+                }
+                if (waiter.startSecond >= end || waiter.endSecond <= start || containsAny(waiter, missed)) {
+                    continue;
+                }
+                Reservation reservation = booker.tryReserve(type, waiter.start, waiter.days);
+                if (reservation == null) {
+                    missed.add(waiter);
+                } else {
+                    if (leave(line, waiter)) {
+                        it.remove();
+                    }
+                    matched.add(waiter);
+                    booked.add(reservation);
+                }
+            }
+        } finally {
+            line.lock.unlock();
+        }
+        for (int i = 0; i < matched.size(); i++) {
+            deliver(matched.get(i), booked.get(i));
+        }
+    }
+
+    /**
+     * @return the number of requests waiting for a car of the type
+     */
+    int size(CarType type) {
+        return lines.get(type).size.get();
+    }
+
+    /**
+     * Takes the waiter off the line's count, once however many threads see
+     * it leave. Only the caller that gets true removes it from the line.
+     */
+    private static boolean leave(Line line, Waiter waiter) {
+        if (!waiter.queued.compareAndSet(true, false)) {
+            return false;
+        }
+        line.size.decrementAndGet();
+        return true;
+    }
+
+    private void deliver(Waiter waiter, Reservation reservation) {
+        if (!waiter.future.complete(reservation)) {
+            // the caller gave up while the car was being claimed
+            release.accept(reservation);
+        }
+    }
+
+    private static boolean containsAny(Waiter waiter, List<Waiter> missed) {
+        for (Waiter other : missed) {
+            if (waiter.startSecond <= other.startSecond && waiter.endSecond >= other.endSecond) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Line {
+        final ReentrantLock lock = new ReentrantLock();
+        // keyed by arrival number, so iterating is arrival order
+        final ConcurrentNavigableMap<Long, Waiter> waiters = new ConcurrentSkipListMap<>();
+        // kept apart from the map, whose size() walks every waiter
+        final AtomicInteger size = new AtomicInteger();
+        // guarded by lock
+        long arrivals;
+        // windows freed since the last match, as {start, end} seconds
+        final Queue<long[]> freed = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+    }
+
+    private static final class Waiter {
+        final long arrival;
+        final LocalDateTime start;
+        final int days;
+        final long startSecond;
+        final long endSecond;
+        final CompletableFuture<Reservation> future = new CompletableFuture<>();
+        final AtomicBoolean queued = new AtomicBoolean(true);
+
+        Waiter(long arrival, LocalDateTime start, int days) {
+            this.arrival = arrival;
+            this.start = start;
+            this.days = days;
+            this.startSecond = Reservation.toEpochSecond(start);
+            this.endSecond = startSecond + days * Reservation.SECONDS_PER_DAY;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.carrental.shard;
+
+import com.example.carrental.domain.CarType;
+import com.example.carrental.domain.IdGenerator;
+import com.example.carrental.domain.Reservation;
+import com.example.carrental.exception.NoAvailableCarException;
+import com.example.carrental.service.AllocationStrategy;
+import com.example.carrental.service.CarRentalService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Router over a fleet partitioned across several CarRentalService shards.
+ *
+ * Every type's cars are split as evenly as possible across the shards, and
+ * each shard numbers its cars from its own offset and stamps its shard
+ * number into its reservation ids as the node id. That makes routing
+ * stateless:
+ * <ul>
+ * <li>cancel and lookup go to the shard named by the reservation id;</li>
+ * <li>per-car queries go to the shard whose index range holds the car;</li>
+ * <li>bookings start at a random shard holding the type and fall through
+ * to the others on a miss, so load spreads without a shared counter and a
+ * booking only fails when every shard is sold out;</li>
+ * <li>availability and listing fan out to the shards in parallel and
+ * combine the answers.</li>
+ * </ul>
+ *
+ * Shards share nothing, not even a lock or a reservation store, so adding
+ * shards adds independent capacity. The shards here are in-process; the
+ * routing only relies on the public CarRentalService API, so a shard could
+ * equally be a client for a service in another process.
+ */
+public class ShardedCarRentalService {
+
+    private static final Comparator<Reservation> BY_START =
+            Comparator.comparing(Reservation::getStart).thenComparingLong(Reservation::getNumericId);
+
+    private final List<CarRentalService> shards;
+    // index of each shard's first car, ascending
+    private final int[] firstCarIndexes;
+    // shards holding at least one car of each type
+    private final Map<CarType, int[]> shardsByType = new EnumMap<>(CarType.class);
+    private final Executor fanOutExecutor;
+
+    public ShardedCarRentalService(Map<CarType, Integer> inventory, int shardCount) {
+        this(inventory, shardCount, AllocationStrategy.FIRST_FIT, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param inventory      the number of cars of each type across all shards
+     * @param shardCount     the number of shards to split the fleet across
+     * @param strategy       the allocation strategy of every shard
+     * @param fanOutExecutor runs the per-shard calls of cross-shard queries
+     */
+    public ShardedCarRentalService(Map<CarType, Integer> inventory, int shardCount,
+            AllocationStrategy strategy, Executor fanOutExecutor) {
+        if (inventory == null) {
+            throw new IllegalArgumentException("Inventory cannot be null");
+        }
+        if (shardCount <= 0 || shardCount > IdGenerator.MAX_NODE_ID + 1) {
+            throw new IllegalArgumentException("Shard count must be between 1 and " + (IdGenerator.MAX_NODE_ID + 1));
+        }
+        this.fanOutExecutor = fanOutExecutor;
+
+        List<CarRentalService> built = new ArrayList<>(shardCount);
+        this.firstCarIndexes = new int[shardCount];
+        Map<CarType, List<Integer>> holders = new EnumMap<>(CarType.class);
+        int nextCarIndex = 0;
+        for (int shard = 0; shard < shardCount; shard++) {
+            Map<CarType, Integer> slice = new EnumMap<>(CarType.class);
+            int cars = 0;
+            for (CarType type : CarType.values()) {
+                int total = inventory.getOrDefault(type, 0);
+                int share = total / shardCount + (shard < total % shardCount ? 1 : 0);
+                if (share > 0) {
+                    slice.put(type, share);
+                    holders.computeIfAbsent(type, t -> new ArrayList<>()).add(shard);
+                    cars += share;
+                }
+            }
+            firstCarIndexes[shard] = nextCarIndex;
+            built.add(new CarRentalService(slice, null, strategy, shard, nextCarIndex));
+            nextCarIndex += cars;
+        }
+        this.shards = List.copyOf(built);
+        for (CarType type : CarType.values()) {
+            shardsByType.put(type, holders.getOrDefault(type, List.of()).stream().mapToInt(i -> i).toArray());
+        }
+    }
+
+    /**
+     * Reserves a car of the specified type on whichever shard has one free.
+     *
+     * @throws NoAvailableCarException  if no shard has a car available
+     * @throws IllegalArgumentException if parameters are invalid
+     * @see CarRentalService#reserveCar
+     */
+    public Reservation reserveCar(CarType type, LocalDateTime start, int days) {
+        return reserveCarOptional(type, start, days).orElseThrow(() -> new NoAvailableCarException(
+                "No " + type + " cars available from " + start + " for " + days + " days"));
+    }
+
+    /**
+     * @see CarRentalService#reserveCarOptional
+     */
+    public Optional<Reservation> reserveCarOptional(CarType type, LocalDateTime start, int days) {
+        checkWindow(type, start, days);
+        int[] holders = shardsByType.get(type);
+        if (holders.length == 0) {
+            return Optional.empty();
+        }
+        int first = ThreadLocalRandom.current().nextInt(holders.length);
+        for (int i = 0; i < holders.length; i++) {
+            Optional<Reservation> reservation = shards.get(holders[(first + i) % holders.length])
+                    .reserveCarOptional(type, start, days);
+            if (reservation.isPresent()) {
+                return reservation;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @see CarRentalService#cancelReservation
+     */
+    public boolean cancelReservation(String reservationId) {
+        CarRentalService shard = owner(reservationId);
+        return shard != null && shard.cancelReservation(reservationId);
+    }
+
+    /**
+     * @see CarRentalService#getReservation
+     */
+    public Optional<Reservation> getReservation(String reservationId) {
+        CarRentalService shard = owner(reservationId);
+        return shard == null ? Optional.empty() : shard.getReservation(reservationId);
+    }
+
+    /**
+     * @see CarRentalService#getCarReservations
+     */
+    public List<Reservation> getCarReservations(String carId) {
+        long index = IdGenerator.parse(carId);
+        if (index < 0 || index > Integer.MAX_VALUE) {
+            return new ArrayList<>();
+        }
+        int shard = Arrays.binarySearch(firstCarIndexes, (int) index);
+        // the car lives in the last shard starting at or before its index
+        shard = shard >= 0 ? lastShardStartingAt(shard) : -shard - 2;
+        return shard < 0 ? new ArrayList<>() : shards.get(shard).getCarReservations(carId);
+    }
+
+    /**
+     * Sums the free cars of every shard holding the type, asking them in
+     * parallel.
+     *
+     * @see CarRentalService#getAvailableCarsCount
+     */
+    public int getAvailableCarsCount(CarType type, LocalDateTime start, int days) {
+        checkWindow(type, start, days);
+        int available = 0;
+        for (int count : fanOut(shardsByType.get(type), shard -> shard.getAvailableCarsCount(type, start, days))) {
+            available += count;
+        }
+        return available;
+    }
+
+    /**
+     * @see CarRentalService#getTotalCarsCount
+     */
+    public int getTotalCarsCount(CarType type) {
+        int total = 0;
+        for (CarRentalService shard : shards) {
+            total += shard.getTotalCarsCount(type);
+        }
+        return total;
+    }
+
+    /**
+     * Collects every shard's reservations in parallel.
+     *
+     * @return all reservations, ordered by start time
+     */
+    public List<Reservation> getAllReservations() {
+        int[] all = new int[shards.size()];
+        Arrays.setAll(all, i -> i);
+        List<Reservation> merged = new ArrayList<>();
+        fanOut(all, CarRentalService::getAllReservations).forEach(merged::addAll);
+        merged.sort(BY_START);
+        return merged;
+    }
+
+    /**
+     * @return the number of shards the fleet is split across
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * The shards themselves are not handed out: each numbers its cars from
+     * its own offset, right up to the next shard's, so adding cars to any
+     * but the last would reuse another shard's car indexes.
+     *
+     * @param type the type of car
+     * @return the number of cars of the type on each shard, in node id order
+     */
+    public List<Integer> getTotalCarsCountPerShard(CarType type) {
+        return shards.stream().map(shard -> shard.getTotalCarsCount(type)).toList();
+    }
+
+    /**
+     * Validates here too, with the service's messages: a type no shard
+     * holds never reaches a shard.
+     */
+    private static void checkWindow(CarType type, LocalDateTime start, int days) {
+        if (type == null) {
+            throw new IllegalArgumentException("Car type cannot be null");
+        }
+        if (start == null) {
+            throw new IllegalArgumentException("Start time cannot be null");
+        }
+        if (days <= 0) {
+            throw new IllegalArgumentException("Number of days must be greater than 0");
+        }
+    }
+
+    /**
+     * @return the shard that issued the reservation id, or null if the id
+     *         is malformed or names no shard
+     */
+    private CarRentalService owner(String reservationId) {
+        long id = IdGenerator.parse(reservationId);
+        if (id < 0) {
+            return null;
+        }
+        int node = IdGenerator.nodeOf(id);
+        return node < shards.size() ? shards.get(node) : null;
+    }
+
+    /**
+     * Shards without cars share their first index with the next shard;
+     * the car belongs to the last of them.
+     */
+    private int lastShardStartingAt(int shard) {
+        while (shard + 1 < firstCarIndexes.length && firstCarIndexes[shard + 1] == firstCarIndexes[shard]) {
+            shard++;
+        }
+        return shard;
+    }
+
+    /**
+     * Runs a call on each of the given shards in parallel and waits for
+     * all of them. A single shard is called on the caller's thread.
+     */
+    private <T> List<T> fanOut(int[] shardIndexes, Function<CarRentalService, T> call) {
+        if (shardIndexes.length == 1) {
+            return List.of(call.apply(shards.get(shardIndexes[0])));
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(shardIndexes.length);
+        for (int shard : shardIndexes) {
+            futures.add(CompletableFuture.supplyAsync(() -> call.apply(shards.get(shard)), fanOutExecutor));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.carrental.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded admission for the API. At most {@code maxConcurrent} requests
+ * are processed at once; the rest wait up to {@code queueTimeout} for a
+ * slot and are then shed with 429 and a Retry-After header.
+ *
+ * With one virtual thread per request, the thread pool no longer limits
+ * concurrency, so without this a booking surge would keep accepting work
+ * until memory ran out. Waiting here parks the virtual thread, which is
+ * cheap, so short bursts queue instead of failing.
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final long queueTimeoutNanos;
+    private final LongAdder rejected = new LongAdder();
+
+    public AdmissionFilter(int maxConcurrent, Duration queueTimeout) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("Max concurrent requests must be greater than 0");
+        }
+        this.permits = new Semaphore(maxConcurrent);
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean admitted;
+        try {
+            admitted = permits.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            rejected.increment();
+            response.setHeader("Retry-After", "1");
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Server busy, retry later");
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * @return the number of requests shed since startup
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.carrental.web;
+
+import com.example.carrental.domain.CarType;
+
+import java.time.LocalDateTime;
+
+/**
+ * JSON view of an availability check.
+ */
+public record AvailabilityResponse(CarType carType, LocalDateTime start, int numberOfDays,
+        int available, int total) {
+}
@@ -0,0 +1,127 @@
+package com.example.carrental.web;
+
+import com.example.carrental.domain.CarType;
+import com.example.carrental.domain.Reservation;
+import com.example.carrental.domain.ReservationPage;
+import com.example.carrental.domain.ReservationQuery;
+import com.example.carrental.service.CarRentalService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * HTTP API over CarRentalService. A thin adapter: every endpoint maps to
+ * one service call, and bad input is rejected by the service itself (see
+ * {@link ApiExceptionHandler}).
+ *
+ * Requests run on virtual threads ({@code spring.threads.virtual.enabled}),
+ * and {@link AdmissionFilter} bounds how many are in flight at once.
+ */
+@RestController
+@RequestMapping("/api")
+public class CarRentalController {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final CarRentalService service;
+
+    public CarRentalController(CarRentalService service) {
+        this.service = service;
+    }
+
+    /**
+     * Books a car. A sold-out window is an expected outcome, so it is
+     * answered with 409 without going through an exception.
+     */
+    @PostMapping("/reservations")
+    public ResponseEntity<?> reserve(@RequestBody ReservationBody body) {
+        if (body == null) {
+            throw new IllegalArgumentException("Reservation body cannot be null");
+        }
+        Optional<Reservation> reservation = service.reserveCarOptional(
+                body.carType(), body.start(), body.numberOfDays());
+        if (reservation.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ProblemDetail.forStatusAndDetail(
+                    HttpStatus.CONFLICT, "No " + body.carType() + " cars available from " + body.start()
+                            + " for " + body.numberOfDays() + " days"));
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(ReservationResponse.of(reservation.get()));
+    }
+
+    /**
+     * Pages through reservations in start-time order, optionally filtered
+     * by type, car and a time window ({@code from} and {@code to} together).
+     */
+    @GetMapping("/reservations")
+    public ReservationPageResponse listReservations(@RequestParam(required = false) CarType type,
+            @RequestParam(required = false) String carId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        ReservationQuery query = ReservationQuery.all();
+        if (type != null) {
+            query = query.withCarType(type);
+        }
+        if (carId != null) {
+            query = query.withCar(carId);
+        }
+        if (from != null || to != null) {
+            query = query.withWindow(from, to);
+        }
+        ReservationPage page = service.getReservations(query, cursor, Math.min(limit, MAX_PAGE_SIZE));
+        return new ReservationPageResponse(
+                page.getReservations().stream().map(ReservationResponse::of).toList(), page.getNextCursor());
+    }
+
+    @GetMapping("/reservations/{id}")
+    public ResponseEntity<ReservationResponse> getReservation(@PathVariable String id) {
+        return ResponseEntity.of(service.getReservation(id).map(ReservationResponse::of));
+    }
+
+    @DeleteMapping("/reservations/{id}")
+    public ResponseEntity<Void> cancel(@PathVariable String id) {
+        return service.cancelReservation(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/cars/{carId}/reservations")
+    public List<ReservationResponse> getCarReservations(@PathVariable String carId) {
+        return service.getCarReservations(carId).stream().map(ReservationResponse::of).toList();
+    }
+
+    @GetMapping("/availability")
+    public AvailabilityResponse getAvailability(@RequestParam CarType type,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam int days) {
+        return new AvailabilityResponse(type, start, days,
+                service.getAvailableCarsCount(type, start, days), service.getTotalCarsCount(type));
+    }
+
+    /**
+     * Range query: free cars per bucket, one day per bucket unless
+     * {@code bucket} is given as an ISO-8601 duration such as {@code PT1H}.
+     */
+    @GetMapping("/availability/range")
+    public int[] getAvailabilityRange(@RequestParam CarType type,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam int buckets,
+            @RequestParam(defaultValue = "P1D") Duration bucket) {
+        return service.getAvailableCarsCounts(type, from, buckets, bucket);
+    }
+}
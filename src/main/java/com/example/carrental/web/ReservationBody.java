@@ -0,0 +1,12 @@
+package com.example.carrental.web;
+
+import com.example.carrental.domain.CarType;
+
+import java.time.LocalDateTime;
+
+/**
+ * JSON request body for booking a car. Validation is left to the service
+ * so the HTTP API rejects exactly what the Java API rejects.
+ */
+public record ReservationBody(CarType carType, LocalDateTime start, int numberOfDays) {
+}
@@ -0,0 +1,10 @@
+package com.example.carrental.web;
+
+import java.util.List;
+
+/**
+ * JSON view of one page of reservations. {@code nextCursor} is null on the
+ * last page.
+ */
+public record ReservationPageResponse(List<ReservationResponse> reservations, String nextCursor) {
+}
@@ -0,0 +1,19 @@
+package com.example.carrental.web;
+
+import com.example.carrental.domain.CarType;
+import com.example.carrental.domain.Reservation;
+
+import java.time.LocalDateTime;
+
+/**
+ * JSON view of a reservation. Kept separate from the domain class so
+ * internal fields such as the epoch-second bounds stay off the wire.
+ */
+public record ReservationResponse(String id, String carId, CarType carType,
+        LocalDateTime start, LocalDateTime end, int numberOfDays) {
+
+    static ReservationResponse of(Reservation reservation) {
+        return new ReservationResponse(reservation.getId(), reservation.getCarId(), reservation.getCarType(),
+                reservation.getStart(), reservation.getEnd(), reservation.getNumberOfDays());
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.carrental.benchmark;
+
+import com.example.carrental.domain.CarType;
+import com.example.carrental.domain.Reservation;
+import com.example.carrental.service.AllocationStrategy;
+import com.example.carrental.service.CarRentalService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Replays the same synthetic booking stream against each allocation
+ * strategy and reports acceptance rate and fleet utilization.
+ *
+ * The stream is mostly short rentals with a tail of long ones, arriving in
+ * random order over the horizon, with demand set above capacity so the
+ * strategies differ in how much of it they can place. A share of accepted
+ * bookings is cancelled again, which is what opens up the short gaps that
+ * fragment a first-fit fleet.
+ *
+ * Usage: {@code java ... AllocationSimulation [cars] [horizonDays] [seed]}
+ */
+public class AllocationSimulation {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final double DEMAND = 1.3;
+    private static final double CANCEL_RATE = 0.1;
+
+    public static void main(String[] args) {
+        int cars = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int horizonDays = args.length > 1 ? Integer.parseInt(args[1]) : 180;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+
+        List<int[]> stream = bookingStream(cars, horizonDays, new Random(seed));
+        System.out.printf("%d cars, %d days, %d requests%n", cars, horizonDays, stream.size());
+        System.out.printf("%-20s %10s %12s%n", "strategy", "accepted", "utilization");
+        for (AllocationStrategy strategy : AllocationStrategy.values()) {
+            Result result = replay(strategy, cars, horizonDays, stream, new Random(seed));
+            System.out.printf("%-20s %9.1f%% %11.1f%%%n",
+                    strategy, result.acceptance * 100, result.utilization * 100);
+        }
+    }
+
+    /**
+     * @return requests as {start hour, days}, roughly DEMAND times the
+     *         fleet's capacity over the horizon
+     */
+    static List<int[]> bookingStream(int cars, int horizonDays, Random random) {
+        List<int[]> stream = new ArrayList<>();
+        long demandDays = (long) (cars * horizonDays * DEMAND);
+        while (demandDays > 0) {
+            double roll = random.nextDouble();
+            int days = roll < 0.6 ? 1 + random.nextInt(3)
+                    : roll < 0.9 ? 4 + random.nextInt(4)
+                    : 8 + random.nextInt(14);
+            int startHour = random.nextInt(Math.max(1, (horizonDays - days) * 24));
+            stream.add(new int[] { startHour, days });
+            demandDays -= days;
+        }
+        return stream;
+    }
+
+    static Result replay(AllocationStrategy strategy, int cars, int horizonDays, List<int[]> stream,
+            Random random) {
+        CarRentalService service = new CarRentalService(Map.of(CarType.SEDAN, cars), null, strategy);
+        int accepted = 0;
+        for (int[] request : stream) {
+            Optional<Reservation> reservation = service.reserveCarOptional(
+                    CarType.SEDAN, BASE.plusHours(request[0]), request[1]);
+            if (reservation.isPresent()) {
+                accepted++;
+                if (random.nextDouble() < CANCEL_RATE) {
+                    service.cancelReservation(reservation.get().getId());
+                }
+            }
+        }
+
+        long bookedSeconds = 0;
+        for (Reservation reservation : service.getAllReservations()) {
+            bookedSeconds += reservation.getEndEpochSecond() - reservation.getStartEpochSecond();
+        }
+        double capacity = (double) cars * horizonDays * Reservation.SECONDS_PER_DAY;
+        return new Result((double) accepted / stream.size(), bookedSeconds / capacity);
+    }
+
+    record Result(double acceptance, double utilization) {
+    }
+}
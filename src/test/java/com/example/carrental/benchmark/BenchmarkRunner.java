@@ -0,0 +1,43 @@
+package com.example.carrental.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Runs the JMH benchmarks once per configured thread count and writes one
+ * JSON result file per run, so runs can be diffed to spot regressions.
+ * The GC profiler is always on, which adds allocation per operation
+ * ({@code gc.alloc.rate.norm}) to every result.
+ *
+ * Usage: {@code mvn -Pbenchmark test-compile exec:exec}, optionally with
+ * {@code -Dbenchmark.include=<regex>}, {@code -Dbenchmark.threads=1,8,32}
+ * and {@code -Dbenchmark.results=<dir>}.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        String include = args.length > 0 ? args[0] : ".*Benchmark.*";
+        Path results = Paths.get(System.getProperty("benchmark.results", "target/jmh"));
+        Files.createDirectories(results);
+
+        for (String threads : System.getProperty("benchmark.threads", "1").split(",")) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(Integer.parseInt(threads.trim()))
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(results.resolve("jmh-result-t" + threads.trim() + ".json").toString())
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.carrental.benchmark;
+
+import com.example.carrental.domain.CarType;
+import com.example.carrental.domain.Reservation;
+import com.example.carrental.exception.NoAvailableCarException;
+import com.example.carrental.service.CarRentalService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot-path benchmarks for CarRentalService.
+ *
+ * The fleet is pre-loaded with a year of bookings per car, spread over the
+ * requested type mix. Queries then target random windows in that year, so
+ * the per-car indexes are exercised at realistic depth. Vary the shape
+ * with {@code -p fleetSize=...}, {@code -p reservationsPerCar=...},
+ * {@code -p typeMix=...} and the runner's thread counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CarRentalServiceBenchmark {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final int HORIZON_DAYS = 365;
+
+    @Param({ "100", "1000", "10000" })
+    public int fleetSize;
+
+    @Param({ "0", "10", "100" })
+    public int reservationsPerCar;
+
+    @Param({ "UNIFORM", "SEDAN_HEAVY" })
+    public String typeMix;
+
+    @Param({ "SEDAN", "VAN" })
+    public CarType queryType;
+
+    private CarRentalService service;
+    private List<Reservation> existing;
+    // a window in which every car of the query type is already booked
+    private LocalDateTime soldOutStart;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<CarType, Integer> inventory = new EnumMap<>(CarType.class);
+        if (typeMix.equals("UNIFORM")) {
+            inventory.put(CarType.SEDAN, fleetSize / 3);
+            inventory.put(CarType.SUV, fleetSize / 3);
+            inventory.put(CarType.VAN, fleetSize - 2 * (fleetSize / 3));
+        } else {
+            inventory.put(CarType.SEDAN, fleetSize * 80 / 100);
+            inventory.put(CarType.SUV, fleetSize * 15 / 100);
+            inventory.put(CarType.VAN, fleetSize - fleetSize * 95 / 100);
+        }
+        service = new CarRentalService(inventory);
+
+        // soldOutStart sits past the horizon so the pre-load never touches it
+        soldOutStart = BASE.plusDays(HORIZON_DAYS + 10);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (CarType type : CarType.values()) {
+            int cars = inventory.get(type);
+            for (int i = 0; i < cars * reservationsPerCar; i++) {
+                service.reserveCarOptional(type, BASE.plusHours(random.nextInt(HORIZON_DAYS * 24)), 1);
+            }
+            for (int i = 0; i < cars; i++) {
+                service.reserveCar(type, soldOutStart, 3);
+            }
+        }
+        existing = service.getAllReservations();
+    }
+
+    private static LocalDateTime randomStart() {
+        return BASE.plusHours(ThreadLocalRandom.current().nextInt(HORIZON_DAYS * 24));
+    }
+
+    /**
+     * Reserve followed by cancel, so the booked state stays stable across
+     * iterations while both write paths are measured.
+     */
+    @Benchmark
+    public boolean reserveAndCancel() {
+        Optional<Reservation> reservation = service.reserveCarOptional(queryType, randomStart(), 1);
+        return reservation.isPresent() && service.cancelReservation(reservation.get().getId());
+    }
+
+    /**
+     * The throwing API on a sold-out window, for comparison with
+     * {@link #reserveCarOptionalMiss}.
+     */
+    @Benchmark
+    public Object reserveCarMiss() {
+        try {
+            return service.reserveCar(queryType, soldOutStart, 1);
+        } catch (NoAvailableCarException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Optional<Reservation> reserveCarOptionalMiss() {
+        return service.reserveCarOptional(queryType, soldOutStart, 1);
+    }
+
+    @Benchmark
+    public boolean cancelUnknownReservation() {
+        return service.cancelReservation("0");
+    }
+
+    @Benchmark
+    public int getAvailableCarsCount() {
+        return service.getAvailableCarsCount(queryType, randomStart(), 3);
+    }
+
+    @Benchmark
+    public List<Reservation> getCarReservations() {
+        Reservation any = existing.get(ThreadLocalRandom.current().nextInt(existing.size()));
+        return service.getCarReservations(any.getCarId());
+    }
+}
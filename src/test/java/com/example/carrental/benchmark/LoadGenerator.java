@@ -0,0 +1,108 @@
+package com.example.carrental.benchmark;
+
+import com.example.carrental.metrics.LogHistogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load test against a running instance of the application.
+ *
+ * Each simulated client runs on its own virtual thread and sends one
+ * request at a time: mostly availability checks, with a share of bookings
+ * and cancellations. Prints throughput, the split of response codes
+ * (including 429s shed by admission control) and latency percentiles.
+ * Run it at several client counts and server core counts to see how
+ * throughput scales and whether p99 stays flat.
+ *
+ * Usage: {@code java ... LoadGenerator [baseUrl] [clients] [seconds]},
+ * e.g. {@code http://localhost:8080 10000 30}.
+ */
+public class LoadGenerator {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        HttpClient http = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        LogHistogram latencies = new LogHistogram();
+        LongAdder ok = new LongAdder();
+        LongAdder conflicts = new LongAdder();
+        LongAdder shed = new LongAdder();
+        LongAdder errors = new LongAdder();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long startNanos = System.nanoTime();
+                        try {
+                            int status = http.send(nextRequest(baseUrl), HttpResponse.BodyHandlers.discarding())
+                                    .statusCode();
+                            latencies.record(System.nanoTime() - startNanos);
+                            if (status < 300) {
+                                ok.increment();
+                            } else if (status == 409 || status == 404) {
+                                conflicts.increment();
+                            } else if (status == 429) {
+                                shed.increment();
+                            } else {
+                                errors.increment();
+                            }
+                        } catch (Exception e) {
+                            errors.increment();
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+
+        System.out.printf("%d clients, %d s: %.0f req/s%n", clients, seconds, latencies.getCount() / (double) seconds);
+        System.out.printf("ok %d, sold out/not found %d, shed %d, errors %d%n",
+                ok.sum(), conflicts.sum(), shed.sum(), errors.sum());
+        System.out.printf("latency p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n",
+                latencies.getValueAtPercentile(50) / 1e6, latencies.getValueAtPercentile(99) / 1e6,
+                latencies.getValueAtPercentile(99.9) / 1e6, latencies.getMax() / 1e6);
+    }
+
+    private static HttpRequest nextRequest(String baseUrl) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String[] types = { "SEDAN", "SUV", "VAN" };
+        String type = types[random.nextInt(types.length)];
+        LocalDateTime start = BASE.plusHours(random.nextInt(365 * 24));
+        int roll = random.nextInt(100);
+        if (roll < 20) {
+            String body = "{\"carType\":\"" + type + "\",\"start\":\"" + start + "\",\"numberOfDays\":"
+                    + (1 + random.nextInt(5)) + "}";
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/api/reservations"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+        if (roll < 25) {
+            // ids are time-ordered numbers, so a random one mostly misses;
+            // this exercises the cancel path without tracking bookings
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/api/reservations/" + random.nextLong(1L << 40)))
+                    .DELETE()
+                    .build();
+        }
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/availability?type=" + type
+                + "&start=" + start + "&days=" + (1 + random.nextInt(5)))).GET().build();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.carrental.benchmark;
+
+import com.example.carrental.domain.CarType;
+import com.example.carrental.domain.Reservation;
+import com.example.carrental.service.CarRentalService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential against fork-join scans of one large pool, to find the pool
+ * size from which {@link CarRentalService#setParallelEvaluation} pays off
+ * on a given host. Compare the two modes at each fleet size; the crossover
+ * is the smallest size where PARALLEL is faster, and it moves down as cores
+ * are added.
+ *
+ * Every car carries a year of bookings, and one window is booked on every
+ * car but the last, so a first-fit search for it has to check the whole
+ * pool, the case a parallel search exists for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelScanBenchmark {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final LocalDateTime LAST_CAR_WINDOW = BASE.plusDays(400);
+    private static final int HORIZON_SECONDS = 365 * 24 * 3600;
+
+    @Param({ "1024", "4096", "16384", "65536", "262144" })
+    public int fleetSize;
+
+    @Param({ "SEQUENTIAL", "PARALLEL" })
+    public String mode;
+
+    private CarRentalService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new CarRentalService(Map.of(CarType.SEDAN, fleetSize));
+        service.setParallelEvaluation("PARALLEL".equals(mode) ? 1 : Integer.MAX_VALUE, ForkJoinPool.commonPool());
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < fleetSize * 20; i++) {
+            service.reserveCarOptional(CarType.SEDAN, BASE.plusHours(random.nextInt(365 * 24)), 1);
+        }
+        for (int i = 0; i < fleetSize - 1; i++) {
+            service.reserveCar(CarType.SEDAN, LAST_CAR_WINDOW, 3);
+        }
+    }
+
+    @Benchmark
+    public int getAvailableCarsCount() {
+        // a random second, so the availability cache practically never hits
+        return service.getAvailableCarsCount(CarType.SEDAN,
+                BASE.plusSeconds(ThreadLocalRandom.current().nextInt(HORIZON_SECONDS)), 3);
+    }
+
+    @Benchmark
+    public boolean reserveLastFreeCar() {
+        Reservation reservation = service.reserveCar(CarType.SEDAN, LAST_CAR_WINDOW, 3);
+        return service.cancelReservation(reservation.getId());
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.carrental.benchmark;
+
+import com.example.carrental.domain.CarType;
+import com.example.carrental.domain.Reservation;
+import com.example.carrental.shard.ShardedCarRentalService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Booking throughput as the same fleet is split over more shards. Run with
+ * several thread counts, e.g. {@code -Dbenchmark.threads=1,4,16}, to see
+ * throughput grow with shards once one shard's shared structures saturate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardedCarRentalServiceBenchmark {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @Param({ "1", "2", "4", "8" })
+    public int shards;
+
+    @Param({ "1000" })
+    public int fleetSize;
+
+    private ShardedCarRentalService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new ShardedCarRentalService(Map.of(CarType.SEDAN, fleetSize), shards);
+    }
+
+    @Benchmark
+    public boolean reserveAndCancel() {
+        Optional<Reservation> reservation = service.reserveCarOptional(
+                CarType.SEDAN, BASE.plusHours(ThreadLocalRandom.current().nextInt(365 * 24)), 1);
+        return reservation.isPresent() && service.cancelReservation(reservation.get().getId());
+    }
+
+    @Benchmark
+    public int getAvailableCarsCount() {
+        return service.getAvailableCarsCount(
+                CarType.SEDAN, BASE.plusHours(ThreadLocalRandom.current().nextInt(365 * 24)), 3);
+    }
+}
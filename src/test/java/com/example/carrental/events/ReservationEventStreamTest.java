@@ -0,0 +1,154 @@
+package com.example.carrental.events;
+
+import com.example.carrental.domain.CarType;
+import com.example.carrental.domain.Reservation;
+import com.example.carrental.events.ReservationEventStream.OverflowPolicy;
+import com.example.carrental.events.ReservationEventStream.Subscription;
+import com.example.carrental.exception.EventStreamOverflowException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests ordering, batching and overflow handling of the reservation event
+ * ring, alone and with concurrent publishers.
+ */
+class ReservationEventStreamTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 1, 10, 0);
+
+    @Test
+    void subscribersReadInOrderAndInBatches() {
+        ReservationEventStream stream = new ReservationEventStream(8);
+        stream.publish(ReservationEvent.Kind.RESERVED, reservation(0));
+        // subscribers start at the next event published
+        Subscription subscription = stream.subscribe(OverflowPolicy.SKIP);
+        for (int i = 1; i <= 5; i++) {
+            stream.publish(i % 2 == 0 ? ReservationEvent.Kind.CANCELLED : ReservationEvent.Kind.RESERVED,
+                    reservation(i));
+        }
+
+        List<ReservationEvent> read = new ArrayList<>();
+        assertEquals(3, subscription.poll(read::add, 3));
+        assertEquals(2, subscription.getLag());
+        assertEquals(2, subscription.poll(read::add, 10));
+        assertEquals(0, subscription.poll(read::add, 10));
+
+        for (int i = 0; i < 5; i++) {
+            ReservationEvent event = read.get(i);
+            assertEquals(i + 1, event.getSequence());
+            assertEquals(i + 1, event.getReservation().getNumericId());
+            assertEquals(i % 2 == 0 ? ReservationEvent.Kind.RESERVED : ReservationEvent.Kind.CANCELLED,
+                    event.getKind());
+        }
+        assertEquals(6, subscription.getSequence());
+        assertEquals(0, subscription.getLostCount());
+    }
+
+    @Test
+    void slowSubscriberSkipsToTheOldestEventHeld() {
+        ReservationEventStream stream = new ReservationEventStream(4);
+        Subscription subscription = stream.subscribe(OverflowPolicy.SKIP);
+        for (int i = 0; i < 10; i++) {
+            stream.publish(ReservationEvent.Kind.RESERVED, reservation(i));
+        }
+
+        List<Long> read = new ArrayList<>();
+        assertEquals(4, subscription.poll(event -> read.add(event.getSequence()), 100));
+        assertEquals(List.of(6L, 7L, 8L, 9L), read);
+        assertEquals(6, subscription.getLostCount());
+    }
+
+    @Test
+    void failingSubscriberIsToldAndCanCarryOn() {
+        ReservationEventStream stream = new ReservationEventStream(4);
+        Subscription subscription = stream.subscribe(OverflowPolicy.FAIL);
+        for (int i = 0; i < 6; i++) {
+            stream.publish(ReservationEvent.Kind.RESERVED, reservation(i));
+        }
+
+        EventStreamOverflowException overflow = assertThrows(EventStreamOverflowException.class,
+                () -> subscription.poll(event -> {
+                }, 100));
+        assertEquals(2, overflow.getLostEvents());
+        List<Long> read = new ArrayList<>();
+        assertEquals(4, subscription.poll(event -> read.add(event.getSequence()), 100));
+        assertEquals(List.of(2L, 3L, 4L, 5L), read);
+    }
+
+    @Test
+    void capacityMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new ReservationEventStream(0));
+        assertThrows(IllegalArgumentException.class, () -> new ReservationEventStream(12));
+        assertThrows(IllegalArgumentException.class, () -> new ReservationEventStream(16).subscribe(null));
+    }
+
+    @Test
+    void concurrentPublishersNeverHandOutTornOrReorderedEvents() throws Exception {
+        int publishers = 4;
+        int perPublisher = 50_000;
+        ReservationEventStream stream = new ReservationEventStream(64);
+        Subscription subscription = stream.subscribe(OverflowPolicy.SKIP);
+        AtomicBoolean done = new AtomicBoolean();
+        List<String> errors = new ArrayList<>();
+        long[] last = {-1};
+        long[] read = {0};
+        Thread reader = new Thread(() -> {
+            while (true) {
+                boolean finished = done.get();
+                int polled = subscription.poll(event -> {
+                    Reservation reservation = event.getReservation();
+                    // every field of an event comes from the same publish
+                    if (reservation.getCarIndex() != (int) reservation.getNumericId() % 1_000
+                            || event.getKind() != kindOf(reservation.getNumericId())) {
+                        errors.add("torn " + event);
+                    }
+                    if (event.getSequence() <= last[0]) {
+                        errors.add("out of order " + event);
+                    }
+                    last[0] = event.getSequence();
+                    read[0]++;
+                }, 256);
+                if (finished && polled == 0) {
+                    return;
+                }
+            }
+        });
+        reader.start();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < publishers; t++) {
+            int first = t * perPublisher;
+            Thread publisher = new Thread(() -> {
+                for (long id = first; id < first + perPublisher; id++) {
+                    stream.publish(kindOf(id), reservation(id));
+                }
+            });
+            threads.add(publisher);
+            publisher.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        done.set(true);
+        reader.join();
+
+        assertEquals(List.of(), errors);
+        assertEquals(publishers * perPublisher, stream.getPublishedCount());
+        // every event was either read or counted as lost
+        assertEquals(stream.getPublishedCount(), read[0] + subscription.getLostCount());
+    }
+
+    private static ReservationEvent.Kind kindOf(long id) {
+        return id % 3 == 0 ? ReservationEvent.Kind.CANCELLED : ReservationEvent.Kind.RESERVED;
+    }
+
+    private static Reservation reservation(long id) {
+        return new Reservation(id, (int) id % 1_000, CarType.SEDAN, START, 1);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.carrental.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the bucket layout and percentile reporting of LogHistogram.
+ */
+class LogHistogramTest {
+
+    @Test
+    void bucketsAreContiguousAndCoverEveryValue() {
+        for (int bucket = 0; bucket < 200; bucket++) {
+            long highest = LogHistogram.highestValueIn(bucket);
+            assertEquals(bucket, LogHistogram.bucketOf(highest));
+            assertEquals(bucket + 1, LogHistogram.bucketOf(highest + 1));
+        }
+        assertEquals(Long.MAX_VALUE, LogHistogram.highestValueIn(LogHistogram.bucketOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void percentilesAreWithinBucketPrecision() {
+        LogHistogram histogram = new LogHistogram();
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000L, histogram.getMax());
+        long median = histogram.getValueAtPercentile(50);
+        assertTrue(median >= 5_000_000 && median <= 5_000_000 * 1.125, "median was " + median);
+        long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(p99 >= 9_900_000 && p99 <= 10_000_000, "p99 was " + p99);
+    }
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LogHistogram histogram = new LogHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+}
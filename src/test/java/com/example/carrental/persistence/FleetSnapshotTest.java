@@ -0,0 +1,106 @@
+package com.example.carrental.persistence;
+
+import com.example.carrental.domain.CarType;
+import com.example.carrental.service.CarRentalService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that a mapped fleet snapshot answers availability queries the
+ * same way as the live service it was exported from.
+ */
+class FleetSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private LocalDateTime baseTime;
+
+    @BeforeEach
+    void setUp() {
+        baseTime = LocalDateTime.of(2026, 3, 1, 10, 0);
+    }
+
+    @Test
+    void snapshotAnswersAvailabilityLikeTheLiveService() throws IOException {
+        CarRentalService service = new CarRentalService(Map.of(
+                CarType.SEDAN, 5,
+                CarType.SUV, 3,
+                CarType.VAN, 1));
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 300; i++) {
+            CarType type = CarType.values()[random.nextInt(3)];
+            service.reserveCarOptional(type, baseTime.plusHours(random.nextInt(24 * 90)), 1 + random.nextInt(7));
+        }
+
+        Path file = directory.resolve("fleet.snapshot");
+        service.exportSnapshot(file);
+        FleetSnapshot snapshot = CarRentalService.openSnapshot(file);
+
+        assertEquals(service.getAllReservations().size(), snapshot.getReservationCount());
+        for (CarType type : CarType.values()) {
+            assertEquals(service.getTotalCarsCount(type), snapshot.getTotalCarsCount(type));
+            for (int day = -2; day < 95; day++) {
+                // whole-hour windows are minute aligned, so the answers match exactly
+                assertEquals(service.getAvailableCarsCount(type, baseTime.plusDays(day), 2),
+                        snapshot.getAvailableCarsCount(type, baseTime.plusDays(day), 2),
+                        type + " day " + day);
+            }
+        }
+    }
+
+    @Test
+    void subMinuteBookingsAreRoundedOutwards() throws IOException {
+        CarRentalService service = new CarRentalService(Map.of(CarType.SEDAN, 1));
+        service.reserveCar(CarType.SEDAN, baseTime.plusSeconds(30), 1);
+
+        Path file = directory.resolve("fleet.snapshot");
+        service.exportSnapshot(file);
+        FleetSnapshot snapshot = FleetSnapshot.open(file);
+
+        // the booking is widened to whole minutes, never narrowed
+        assertEquals(0, snapshot.getAvailableCarsCount(CarType.SEDAN, baseTime.minusDays(1).plusSeconds(10), 1));
+        assertEquals(0, snapshot.getAvailableCarsCount(CarType.SEDAN, baseTime.plusDays(1), 1));
+        assertEquals(1, snapshot.getAvailableCarsCount(CarType.SEDAN, baseTime.plusDays(1).plusMinutes(1), 1));
+        assertEquals(0, snapshot.getTotalCarsCount(CarType.VAN));
+    }
+
+    @Test
+    void snapshotRejectsInvalidArgumentsLikeTheLiveService() throws IOException {
+        CarRentalService service = new CarRentalService(Map.of(CarType.SEDAN, 1));
+        Path file = directory.resolve("fleet.snapshot");
+        service.exportSnapshot(file);
+        FleetSnapshot snapshot = FleetSnapshot.open(file);
+
+        IllegalArgumentException noType = assertThrows(IllegalArgumentException.class,
+                () -> snapshot.getAvailableCarsCount(null, baseTime, 1));
+        IllegalArgumentException noStart = assertThrows(IllegalArgumentException.class,
+                () -> snapshot.getAvailableCarsCount(CarType.SEDAN, null, 1));
+        IllegalArgumentException noDays = assertThrows(IllegalArgumentException.class,
+                () -> snapshot.getAvailableCarsCount(CarType.SEDAN, baseTime, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> snapshot.getAvailableCarsCount(CarType.SEDAN, baseTime, -1));
+
+        assertEquals("Car type cannot be null", noType.getMessage());
+        assertEquals("Start time cannot be null", noStart.getMessage());
+        assertEquals("Number of days must be greater than 0", noDays.getMessage());
+    }
+
+    @Test
+    void openRejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("not-a-snapshot");
+        Files.write(file, new byte[64]);
+
+        assertThrows(IOException.class, () -> FleetSnapshot.open(file));
+    }
+}
@@ -0,0 +1,598 @@
+package com.example.carrental.persistence;
+
+import com.example.carrental.domain.Car;
+import com.example.carrental.domain.CarType;
+import com.example.carrental.domain.Reservation;
+import com.example.carrental.domain.ReservationRequest;
+import com.example.carrental.events.ReservationEvent;
+import com.example.carrental.events.ReservationEventStream;
+import com.example.carrental.exception.NoAvailableCarException;
+import com.example.carrental.service.CarRentalService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that reservations recorded in the journal survive a restart,
+ * including after compaction and after a crash that tore the last record.
+ */
+class ReservationJournalTest {
+
+    private static final Map<CarType, Integer> INVENTORY = Map.of(
+            CarType.SEDAN, 2,
+            CarType.SUV, 1);
+
+    @TempDir
+    Path directory;
+
+    private LocalDateTime baseTime;
+
+    @BeforeEach
+    void setUp() {
+        baseTime = LocalDateTime.of(2026, 3, 1, 10, 0);
+    }
+
+    @Test
+    void reservationsAndCancellationsSurviveRestart() throws IOException {
+        Reservation kept;
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            CarRentalService service = new CarRentalService(INVENTORY, journal);
+            kept = service.reserveCar(CarType.SEDAN, baseTime, 3);
+            Reservation cancelled = service.reserveCar(CarType.SUV, baseTime, 2);
+            service.cancelReservation(cancelled.getId());
+        }
+
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            CarRentalService service = new CarRentalService(INVENTORY, journal);
+
+            assertEquals(List.of(kept), service.getAllReservations());
+            Reservation restored = service.getReservation(kept.getId()).orElseThrow();
+            assertEquals(kept.getCarId(), restored.getCarId());
+            assertEquals(kept.getStart(), restored.getStart());
+            assertEquals(kept.getNumberOfDays(), restored.getNumberOfDays());
+            assertEquals(1, service.getAvailableCarsCount(CarType.SEDAN, baseTime, 3));
+            assertEquals(1, service.getAvailableCarsCount(CarType.SUV, baseTime, 2));
+        }
+    }
+
+    @Test
+    void compactionTruncatesLogAndKeepsState() throws IOException {
+        try (ReservationJournal journal = ReservationJournal.open(directory, 10)) {
+            CarRentalService service = new CarRentalService(INVENTORY, journal);
+            for (int day = 0; day < 25; day++) {
+                service.reserveCar(CarType.SEDAN, baseTime.plusDays(day), 1);
+            }
+        }
+
+        assertTrue(Files.exists(directory.resolve(ReservationJournal.SNAPSHOT_FILE)));
+        assertTrue(Files.size(directory.resolve(ReservationJournal.LOG_FILE)) > 0,
+                "events after the last snapshot stay in the log");
+
+        try (ReservationJournal journal = ReservationJournal.open(directory, 10)) {
+            CarRentalService service = new CarRentalService(INVENTORY, journal);
+            assertEquals(25, service.getAllReservations().size());
+
+            journal.compact();
+            assertEquals(0, Files.size(directory.resolve(ReservationJournal.LOG_FILE)));
+        }
+
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            assertEquals(25, new CarRentalService(INVENTORY, journal).getAllReservations().size());
+        }
+    }
+
+    @Test
+    void tornRecordAtEndOfLogIsDiscarded() throws IOException {
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            CarRentalService service = new CarRentalService(INVENTORY, journal);
+            service.reserveCar(CarType.SEDAN, baseTime, 1);
+            service.reserveCar(CarType.SEDAN, baseTime, 1);
+        }
+        Path log = directory.resolve(ReservationJournal.LOG_FILE);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            CarRentalService service = new CarRentalService(INVENTORY, journal);
+            assertEquals(1, service.getAllReservations().size());
+
+            // the log keeps working after the torn tail is cut off
+            service.reserveCar(CarType.SUV, baseTime, 1);
+        }
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            assertEquals(2, journal.getRecoveredReservations().size());
+        }
+    }
+
+    @Test
+    void newIdsNeverRepeatRecoveredOnesWhenTheClockIsBehind() throws IOException {
+        // as if the last run's clock was a year ahead of this one's
+        long future = (365L * 24 * 3600 * 1000 * 2) << 22;
+        Reservation recovered = new Reservation(future, 0, CarType.SEDAN, baseTime, 1);
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            journal.recordReserved(recovered);
+        }
+
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            CarRentalService service = new CarRentalService(INVENTORY, journal);
+            Reservation fresh = service.reserveCar(CarType.SEDAN, baseTime, 1);
+
+            assertTrue(fresh.getNumericId() > recovered.getNumericId());
+            assertTrue(service.cancelReservation(recovered.getId()));
+            assertTrue(service.cancelReservation(fresh.getId()));
+        }
+    }
+
+    @Test
+    void growingTheInventoryKeepsBookingsOnTheirCars() throws IOException {
+        Reservation suv;
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            suv = new CarRentalService(Map.of(CarType.SEDAN, 1, CarType.SUV, 1), journal)
+                    .reserveCar(CarType.SUV, baseTime, 1);
+        }
+
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            CarRentalService service = new CarRentalService(Map.of(CarType.SEDAN, 2, CarType.SUV, 1), journal);
+
+            assertEquals(suv.getCarId(), service.getReservation(suv.getId()).orElseThrow().getCarId());
+            assertEquals(0, service.getAvailableCarsCount(CarType.SUV, baseTime, 1));
+            assertEquals(2, service.getAvailableCarsCount(CarType.SEDAN, baseTime, 1));
+            // the new sedan is numbered after the recorded cars
+            assertEquals(2, service.getTotalCarsCount(CarType.SEDAN));
+            assertEquals(List.of("0", "2"), List.of(service.reserveCar(CarType.SEDAN, baseTime, 1).getCarId(),
+                    service.reserveCar(CarType.SEDAN, baseTime, 1).getCarId()));
+            journal.compact();
+        }
+
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            // shrinking the configuration keeps the recorded cars
+            CarRentalService service = new CarRentalService(Map.of(CarType.SUV, 1), journal);
+            assertEquals(2, service.getTotalCarsCount(CarType.SEDAN));
+            assertEquals(0, service.getAvailableCarsCount(CarType.SUV, baseTime, 1));
+        }
+    }
+
+    @Test
+    void recoveryRejectsABookingOnACarOfAnotherType() throws IOException {
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            journal.recordReserved(new Reservation(1, 0, CarType.SUV, baseTime, 1));
+        }
+
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            assertThrows(IllegalStateException.class,
+                    () -> new CarRentalService(Map.of(CarType.SEDAN, 1, CarType.SUV, 1), journal));
+        }
+    }
+
+    @Test
+    void archivedReservationsSurviveCompaction() throws IOException {
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            CarRentalService service = new CarRentalService(INVENTORY, journal);
+            service.reserveCar(CarType.SEDAN, baseTime, 1);
+            service.reserveCar(CarType.SEDAN, baseTime.plusDays(10), 1);
+            service.archiveEndedBefore(baseTime.plusDays(5));
+            journal.compact();
+        }
+
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            CarRentalService service = new CarRentalService(INVENTORY, journal);
+            assertEquals(2, service.getAllReservations(true).size());
+            assertEquals(1, service.getAllReservations().size());
+        }
+    }
+
+    @Test
+    void archivedReservationsComeBackArchived() throws IOException {
+        Reservation past;
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            CarRentalService service = new CarRentalService(INVENTORY, journal);
+            past = service.reserveCar(CarType.SEDAN, baseTime, 1);
+            service.reserveCar(CarType.SEDAN, baseTime.plusDays(10), 1);
+            service.archiveEndedBefore(baseTime.plusDays(5));
+        }
+
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            assertEquals(1, journal.getRecoveredReservations().size());
+            assertEquals(List.of(past), List.copyOf(journal.getRecoveredArchive()));
+
+            CarRentalService service = new CarRentalService(INVENTORY, journal);
+            assertEquals(1, service.getAllReservations().size());
+            assertEquals(List.of(past), service.getCarReservations(past.getCarId(), true).subList(0, 1));
+            assertFalse(service.cancelReservation(past.getId()));
+            journal.compact();
+        }
+
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            assertEquals(1, journal.getRecoveredReservations().size());
+            assertEquals(List.of(past), List.copyOf(journal.getRecoveredArchive()));
+        }
+    }
+
+    @Test
+    void fleetChangesAndMovedBookingsSurviveRestartAndCompaction() throws IOException {
+        Reservation moved;
+        Reservation added;
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            CarRentalService service = new CarRentalService(INVENTORY, journal);
+            service.addCars(CarType.SUV, 1);
+            moved = service.reserveCar(CarType.SUV, baseTime, 2);
+            added = service.reserveCar(CarType.SUV, baseTime, 2);
+            assertEquals("3", added.getCarId());
+            service.cancelReservation(added.getId());
+            added = service.reserveCar(CarType.SUV, baseTime.plusDays(5), 1);
+            assertEquals(List.of(), service.retireCar(moved.getCarId()));
+        }
+
+        for (int restart = 0; restart < 2; restart++) {
+            try (ReservationJournal journal = ReservationJournal.open(directory)) {
+                CarRentalService service = new CarRentalService(INVENTORY, journal);
+                assertEquals(1, service.getTotalCarsCount(CarType.SUV));
+                assertEquals("3", service.getReservation(moved.getId()).orElseThrow().getCarId());
+                assertEquals(List.of(added.getId(), moved.getId()).stream().sorted().toList(),
+                        service.getCarReservations("3").stream().map(Reservation::getId).sorted().toList());
+                assertEquals(0, service.getAvailableCarsCount(CarType.SUV, baseTime, 1));
+                // the second pass reads the fleet back from a snapshot
+                journal.compact();
+            }
+        }
+    }
+
+    @Test
+    void failedWritesLeaveNoTraceInMemory() throws IOException {
+        FailingChannel[] channel = new FailingChannel[1];
+        Reservation kept;
+        try (ReservationJournal journal = ReservationJournal.open(directory, 10,
+                log -> channel[0] = new FailingChannel(log))) {
+            CarRentalService service = new CarRentalService(INVENTORY, journal);
+            kept = service.reserveCar(CarType.SUV, baseTime, 2);
+            channel[0].failing = true;
+
+            assertThrows(UncheckedIOException.class, () -> service.reserveCar(CarType.SEDAN, baseTime, 1));
+            assertEquals(2, service.getAvailableCarsCount(CarType.SEDAN, baseTime, 1));
+            assertThrows(UncheckedIOException.class, () -> service.reserveCars(List.of(
+                    new ReservationRequest(CarType.SEDAN, baseTime, 1),
+                    new ReservationRequest(CarType.SEDAN, baseTime, 1))));
+            assertEquals(2, service.getAvailableCarsCount(CarType.SEDAN, baseTime, 1));
+            assertEquals(List.of(), service.getCarReservations("0"));
+
+            // a cancel that can't be logged leaves the booking in place
+            assertThrows(UncheckedIOException.class, () -> service.cancelReservation(kept.getId()));
+            assertThrows(UncheckedIOException.class, () -> service.cancelReservations(List.of(kept.getId())));
+            assertEquals(List.of(kept), service.getAllReservations());
+            assertEquals(0, service.getAvailableCarsCount(CarType.SUV, baseTime, 1));
+        }
+
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            assertEquals(List.of(kept), List.copyOf(journal.getRecoveredReservations()));
+        }
+    }
+
+    @Test
+    void journalRecoversOnceTheDiskDoes() throws IOException {
+        FailingChannel[] channel = new FailingChannel[1];
+        Reservation kept;
+        Reservation later;
+        try (ReservationJournal journal = ReservationJournal.open(directory, 10,
+                log -> channel[0] = new FailingChannel(log))) {
+            CarRentalService service = new CarRentalService(INVENTORY, journal);
+            kept = service.reserveCar(CarType.SUV, baseTime, 2);
+            channel[0].failing = true;
+
+            assertThrows(UncheckedIOException.class, () -> service.reserveCar(CarType.SEDAN, baseTime, 1));
+            // the failed batch can't even be cut back out yet
+            assertFalse(journal.isHealthy());
+
+            channel[0].failing = false;
+            later = service.reserveCar(CarType.SEDAN, baseTime, 1);
+            assertTrue(journal.isHealthy());
+        }
+
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            assertEquals(List.of(kept, later), List.copyOf(journal.getRecoveredReservations()));
+        }
+    }
+
+    @Test
+    void manyBookingsOnOneCarComeBackInOrder() throws IOException {
+        Map<CarType, Integer> inventory = Map.of(CarType.SEDAN, 1);
+        List<Reservation> booked;
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            CarRentalService service = new CarRentalService(inventory, journal);
+            // recorded latest first, so recovery has to sort them
+            for (int day = 2_000; day > 0; day -= 2) {
+                service.reserveCar(CarType.SEDAN, baseTime.plusDays(day), 1);
+            }
+            booked = service.getCarReservations("0");
+        }
+
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            CarRentalService service = new CarRentalService(inventory, journal);
+            assertEquals(booked, service.getCarReservations("0"));
+            assertEquals(0, service.getAvailableCarsCount(CarType.SEDAN, baseTime.plusDays(1_000), 1));
+            assertEquals(1, service.getAvailableCarsCount(CarType.SEDAN, baseTime.plusDays(1_001), 1));
+            assertThrows(NoAvailableCarException.class, () -> service.reserveCar(CarType.SEDAN, baseTime.plusDays(4), 1));
+        }
+    }
+
+    @Test
+    void fleetChangesThatFailToWriteAreNotRecorded() throws IOException {
+        FailingChannel[] channel = new FailingChannel[1];
+        try (ReservationJournal journal = ReservationJournal.open(directory, 10,
+                log -> channel[0] = new FailingChannel(log))) {
+            CarRentalService service = new CarRentalService(INVENTORY, journal);
+            List<Car> fleet = journal.getAddedCars();
+            channel[0].failing = true;
+
+            assertThrows(UncheckedIOException.class, () -> service.addCars(CarType.SEDAN, 1));
+            assertThrows(UncheckedIOException.class, () -> service.retireCar("0"));
+            // a later snapshot writes these out, so they must not hold the failed changes
+            assertEquals(fleet, journal.getAddedCars());
+            assertEquals(Set.of(), journal.getRetiredCarIndexes());
+        }
+    }
+
+    @Test
+    void sweepDuringAFailingCancelLeavesTheBookingLive() throws Exception {
+        FailingChannel[] channel = new FailingChannel[1];
+        try (ReservationJournal journal = ReservationJournal.open(directory, 10,
+                log -> channel[0] = new FailingChannel(log))) {
+            CarRentalService service = new CarRentalService(INVENTORY, journal);
+            Reservation ended = service.reserveCar(CarType.SUV, baseTime, 2);
+            channel[0].failing = true;
+            channel[0].stall = new CountDownLatch(1);
+            CompletableFuture<Boolean> cancel =
+                    CompletableFuture.supplyAsync(() -> service.cancelReservation(ended.getId()));
+            channel[0].stalled.await();
+
+            // the cancel has taken the booking out of the store and is waiting on disk
+            assertEquals(0, service.archiveEndedBefore(baseTime.plusDays(5)));
+            channel[0].stall.countDown();
+
+            assertThrows(CompletionException.class, cancel::join);
+            assertEquals(List.of(ended), service.getAllReservations());
+            assertEquals(List.of(ended), service.getCarReservations(ended.getCarId()));
+        }
+    }
+
+    @Test
+    void cancelsOfFreshBookingsAreLoggedAfterThem() throws Exception {
+        Map<CarType, Integer> inventory = Map.of(CarType.SEDAN, 50);
+        List<Reservation> live;
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            CarRentalService service = new CarRentalService(inventory, journal);
+            AtomicBoolean booking = new AtomicBoolean(true);
+            // cancels every booking as soon as it shows up, racing its journal write
+            Thread canceller = new Thread(() -> {
+                while (booking.get()) {
+                    service.getAllReservations().forEach(r -> service.cancelReservation(r.getId()));
+                }
+            });
+            canceller.start();
+            IntStream.range(0, 2_000).parallel()
+                    .forEach(i -> service.reserveCarOptional(CarType.SEDAN, baseTime.plusDays(i % 40), 1));
+            booking.set(false);
+            canceller.join();
+            live = service.getAllReservations();
+        }
+
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            assertEquals(live, new CarRentalService(inventory, journal).getAllReservations());
+        }
+    }
+
+    @Test
+    void eventsOfOneReservationArePublishedInOrder() throws Exception {
+        List<ReservationEvent> events = new ArrayList<>();
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            CarRentalService service = new CarRentalService(Map.of(CarType.SEDAN, 50), journal);
+            ReservationEventStream.Subscription subscription = service.enableEventStream(8192)
+                    .subscribe(ReservationEventStream.OverflowPolicy.FAIL);
+            AtomicBoolean booking = new AtomicBoolean(true);
+            // cancels bookings while their RESERVED event may still be pending
+            Thread canceller = new Thread(() -> {
+                while (booking.get()) {
+                    service.getAllReservations().forEach(r -> service.cancelReservation(r.getId()));
+                }
+            });
+            canceller.start();
+            IntStream.range(0, 2_000).parallel()
+                    .forEach(i -> service.reserveCarOptional(CarType.SEDAN, baseTime.plusDays(i % 40), 1));
+            booking.set(false);
+            canceller.join();
+            subscription.poll(events::add, 8192);
+        }
+
+        Map<String, ReservationEvent.Kind> last = new HashMap<>();
+        for (ReservationEvent event : events) {
+            ReservationEvent.Kind previous = last.put(event.getReservation().getId(), event.getKind());
+            if (event.getKind() == ReservationEvent.Kind.RESERVED) {
+                assertTrue(previous == null, "second RESERVED for " + event.getReservation());
+            } else {
+                assertEquals(ReservationEvent.Kind.RESERVED, previous, "CANCELLED before RESERVED for "
+                        + event.getReservation());
+            }
+        }
+    }
+
+    @Test
+    void snapshotsNeverDropBookingsBeingMade() throws IOException {
+        Map<CarType, Integer> inventory = Map.of(CarType.SEDAN, 400);
+        List<Reservation> live;
+        // a snapshot after every batch, racing the bookings as they go in
+        try (ReservationJournal journal = ReservationJournal.open(directory, 1)) {
+            CarRentalService service = new CarRentalService(inventory, journal);
+            IntStream.range(0, 400).parallel()
+                    .forEach(i -> service.reserveCar(CarType.SEDAN, baseTime, 1));
+            live = service.getAllReservations();
+        }
+
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            assertEquals(live, new CarRentalService(inventory, journal).getAllReservations());
+        }
+    }
+
+    @Test
+    void concurrentBookingsAreAllRecorded() throws IOException {
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            CarRentalService service = new CarRentalService(Map.of(CarType.SEDAN, 200), journal);
+            IntStream.range(0, 200).parallel()
+                    .forEach(i -> service.reserveCar(CarType.SEDAN, baseTime, 1));
+        }
+
+        try (ReservationJournal journal = ReservationJournal.open(directory)) {
+            CarRentalService service = new CarRentalService(Map.of(CarType.SEDAN, 200), journal);
+            assertEquals(200, service.getAllReservations().size());
+            assertEquals(0, service.getAvailableCarsCount(CarType.SEDAN, baseTime, 1));
+        }
+    }
+
+    /**
+     * Log channel whose writes and forces throw once told to.
+     */
+    private static final class FailingChannel extends FileChannel {
+        private final FileChannel delegate;
+        volatile boolean failing;
+        // when set, writes wait on it after counting down stalled
+        volatile CountDownLatch stall;
+        final CountDownLatch stalled = new CountDownLatch(1);
+
+        FailingChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        private void check() throws IOException {
+            CountDownLatch gate = stall;
+            if (gate != null) {
+                stalled.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            if (failing) {
+                throw new IOException("Disk full");
+            }
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            check();
+            return delegate.write(src);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            check();
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            check();
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            check();
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            check();
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            check();
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
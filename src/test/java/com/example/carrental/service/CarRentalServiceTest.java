@@ -1,13 +1,43 @@
 package com.example.carrental.service;
 
+import com.example.carrental.domain.BatchReservationResult;
+import com.example.carrental.domain.Car;
 import com.example.carrental.domain.CarType;
+import com.example.carrental.domain.IdGenerator;
 import com.example.carrental.domain.Reservation;
+import com.example.carrental.domain.ReservationPage;
+import com.example.carrental.domain.ReservationQuery;
+import com.example.carrental.domain.ReservationRequest;
+import com.example.carrental.events.ReservationEvent;
+import com.example.carrental.events.ReservationEventStream;
 import com.example.carrental.exception.NoAvailableCarException;
+import com.example.carrental.metrics.ServiceMetrics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -140,6 +170,37 @@ class CarRentalServiceTest {
                 "Should throw for null start date");
     }
 
+    @Test
+    void throwExceptionWhenCountingWithInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getAvailableCarsCount(null, baseTime, 3),
+                "Should throw for null car type");
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getAvailableCarsCount(CarType.SEDAN, null, 3),
+                "Should throw for null start date");
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getAvailableCarsCount(CarType.SEDAN, baseTime, 0),
+                "Should throw for 0 days");
+    }
+
+    @Test
+    void idsFromAClockBefore2026StayPositiveAndIncreasing() {
+        IdGenerator ids = new IdGenerator(3, Clock.fixed(Instant.parse("2025-06-01T00:00:00Z"), ZoneOffset.UTC));
+        long first = ids.next();
+        long second = ids.next();
+
+        assertTrue(first > 0, "id " + first);
+        assertTrue(second > first);
+        assertEquals(second, IdGenerator.parse(Long.toString(second)));
+        assertEquals(3, IdGenerator.nodeOf(first));
+        assertEquals(3, IdGenerator.nodeOf(second));
+    }
+
+    @Test
+    void throwExceptionWhenCreatingCarWithNullType() {
+        assertThrows(IllegalArgumentException.class, () -> new Car(0, null));
+    }
+
     // ========== Overlap Detection Edge Cases ==========
 
     @Test
@@ -191,6 +252,34 @@ class CarRentalServiceTest {
         assertNotNull(first);
     }
 
+    @Test
+    void overlapIsDetectedAgainstEarlierLongReservation() {
+        var singleCarService = new CarRentalService(Map.of(CarType.SEDAN, 1));
+
+        singleCarService.reserveCar(CarType.SEDAN, baseTime, 20);
+        singleCarService.reserveCar(CarType.SEDAN, baseTime.plusDays(30), 1);
+
+        // starts inside the first booking but after it in the per-car index
+        assertThrows(NoAvailableCarException.class,
+                () -> singleCarService.reserveCar(CarType.SEDAN, baseTime.plusDays(19), 1));
+        assertNotNull(singleCarService.reserveCar(CarType.SEDAN, baseTime.plusDays(20), 10));
+    }
+
+    @Test
+    void availabilityIsCorrectWithManyReservationsOnOneCar() {
+        var singleCarService = new CarRentalService(Map.of(CarType.SEDAN, 1));
+
+        // book every other day for a year
+        for (int day = 0; day < 365; day += 2) {
+            singleCarService.reserveCar(CarType.SEDAN, baseTime.plusDays(day), 1);
+        }
+
+        assertEquals(0, singleCarService.getAvailableCarsCount(CarType.SEDAN, baseTime.plusDays(100), 1));
+        assertEquals(1, singleCarService.getAvailableCarsCount(CarType.SEDAN, baseTime.plusDays(101), 1));
+        assertEquals(0, singleCarService.getAvailableCarsCount(CarType.SEDAN, baseTime.plusDays(101), 2));
+        assertEquals(1, singleCarService.getAvailableCarsCount(CarType.SEDAN, baseTime.plusDays(365), 30));
+    }
+
     // ========== Availability Query Tests ==========
 
     @Test
@@ -217,6 +306,138 @@ class CarRentalServiceTest {
         assertEquals(2, service.getAvailableCarsCount(CarType.SEDAN, baseTime.plusDays(3), 3));
     }
 
+    @Test
+    void dailyAvailableCarsCountsMatchesPerDayQueries() {
+        var fleetService = new CarRentalService(Map.of(CarType.SEDAN, 4));
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 40; i++) {
+            fleetService.reserveCarOptional(CarType.SEDAN,
+                    baseTime.plusHours(random.nextInt(24 * 40)), 1 + random.nextInt(4));
+        }
+
+        int[] counts = fleetService.getDailyAvailableCarsCounts(CarType.SEDAN, baseTime, 30);
+
+        assertEquals(30, counts.length);
+        for (int day = 0; day < 30; day++) {
+            assertEquals(fleetService.getAvailableCarsCount(CarType.SEDAN, baseTime.plusDays(day), 1),
+                    counts[day], "day " + day);
+        }
+    }
+
+    @Test
+    void availableCarsCountsSupportsHourBuckets() {
+        var singleCarService = new CarRentalService(Map.of(CarType.SEDAN, 1));
+        singleCarService.reserveCar(CarType.SEDAN, baseTime.plusHours(2), 1);
+
+        int[] counts = singleCarService.getAvailableCarsCounts(
+                CarType.SEDAN, baseTime, 30, Duration.ofHours(1));
+
+        assertEquals(1, counts[0]);
+        assertEquals(1, counts[1]);
+        assertEquals(0, counts[2]);
+        assertEquals(0, counts[25]);
+        assertEquals(1, counts[26]);
+    }
+
+    @Test
+    void availableCarsCountsRejectsInvalidWindow() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getDailyAvailableCarsCounts(CarType.SEDAN, baseTime, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getDailyAvailableCarsCounts(null, baseTime, 30));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getAvailableCarsCounts(CarType.SEDAN, baseTime, 30, Duration.ZERO));
+    }
+
+    // ========== Batch Reservation Tests ==========
+
+    @Test
+    void reserveCarsBooksWholeGroup() {
+        BatchReservationResult result = service.reserveCars(List.of(
+                new ReservationRequest(CarType.SEDAN, baseTime, 3),
+                new ReservationRequest(CarType.SEDAN, baseTime, 3),
+                new ReservationRequest(CarType.VAN, baseTime, 2)));
+
+        assertTrue(result.isSuccessful());
+        assertEquals(3, result.getReservations().size());
+        assertEquals(CarType.VAN, result.getReservations().get(2).getCarType());
+        assertNotEquals(result.getReservations().get(0).getCarId(), result.getReservations().get(1).getCarId());
+        assertEquals(0, service.getAvailableCarsCount(CarType.SEDAN, baseTime, 3));
+        assertEquals(3, service.getAllReservations().size());
+    }
+
+    @Test
+    void reserveCarsBooksNothingWhenAnyRequestFails() {
+        BatchReservationResult result = service.reserveCars(List.of(
+                new ReservationRequest(CarType.SEDAN, baseTime, 3),
+                new ReservationRequest(CarType.SUV, baseTime, 3),
+                new ReservationRequest(CarType.SUV, baseTime.plusDays(1), 1)));
+
+        assertFalse(result.isSuccessful());
+        assertTrue(result.getReservations().isEmpty());
+        assertEquals(Map.of(2, "No SUV cars available from " + baseTime.plusDays(1) + " for 1 days"),
+                result.getFailures());
+        assertTrue(service.getAllReservations().isEmpty());
+        assertEquals(2, service.getAvailableCarsCount(CarType.SEDAN, baseTime, 3));
+    }
+
+    @Test
+    void reserveCarsReusesCarForNonOverlappingRequests() {
+        var singleCarService = new CarRentalService(Map.of(CarType.SEDAN, 1));
+
+        BatchReservationResult result = singleCarService.reserveCars(List.of(
+                new ReservationRequest(CarType.SEDAN, baseTime, 3),
+                new ReservationRequest(CarType.SEDAN, baseTime.plusDays(3), 3)));
+
+        assertTrue(result.isSuccessful());
+        assertEquals(2, singleCarService.getAllReservations().size());
+    }
+
+    @Test
+    void reserveCarsRejectsInvalidRequests() {
+        assertThrows(IllegalArgumentException.class, () -> service.reserveCars(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ReservationRequest(CarType.SEDAN, baseTime, 0));
+        assertTrue(service.reserveCars(List.of()).isSuccessful());
+    }
+
+    @Test
+    void reserveCarsLocksOnlyThePickedCars() {
+        CarRentalService large = new CarRentalService(Map.of(CarType.SEDAN, 1_000));
+        long before = large.getMetrics().getLockAcquisitions();
+        assertTrue(large.reserveCars(List.of(
+                new ReservationRequest(CarType.SEDAN, baseTime, 1),
+                new ReservationRequest(CarType.SEDAN, baseTime, 1))).isSuccessful());
+        // one lock per picked car, plus the claim re-entering it
+        assertEquals(4, large.getMetrics().getLockAcquisitions() - before);
+    }
+
+    @Test
+    void concurrentBatchesAndSingleBookingsNeverOverbook() throws Exception {
+        CarRentalService contended = new CarRentalService(Map.of(CarType.SEDAN, 30));
+        AtomicInteger booked = new AtomicInteger();
+        runConcurrently(8, () -> {
+            for (int i = 0; i < 20; i++) {
+                if (i % 2 == 0) {
+                    BatchReservationResult result = contended.reserveCars(List.of(
+                            new ReservationRequest(CarType.SEDAN, baseTime, 1),
+                            new ReservationRequest(CarType.SEDAN, baseTime, 1),
+                            new ReservationRequest(CarType.SEDAN, baseTime, 1)));
+                    if (result.isSuccessful()) {
+                        booked.addAndGet(3);
+                    }
+                } else if (contended.reserveCarOptional(CarType.SEDAN, baseTime, 1).isPresent()) {
+                    booked.incrementAndGet();
+                }
+            }
+        });
+
+        List<Reservation> all = contended.getAllReservations();
+        assertEquals(booked.get(), all.size());
+        assertEquals(all.size(), all.stream().map(Reservation::getCarId).distinct().count());
+        assertTrue(all.size() >= 28, "only " + all.size() + " of 30 cars booked");
+    }
+
     // ========== Cancellation Tests ==========
 
     @Test
@@ -248,8 +469,40 @@ class CarRentalServiceTest {
         assertNotNull(second);
     }
 
+    @Test
+    void cancelReservationTwiceOnlySucceedsOnce() {
+        Reservation res = service.reserveCar(CarType.SEDAN, baseTime, 3);
+        assertTrue(service.cancelReservation(res.getId()));
+        assertFalse(service.cancelReservation(res.getId()));
+    }
+
+    @Test
+    void cancelReservationsCancelsKnownIdsAndSkipsUnknown() {
+        Reservation res1 = service.reserveCar(CarType.SEDAN, baseTime, 3);
+        Reservation res2 = service.reserveCar(CarType.SUV, baseTime, 3);
+        Reservation res3 = service.reserveCar(CarType.VAN, baseTime, 3);
+
+        int cancelled = service.cancelReservations(List.of(res1.getId(), "non-existent-id", res3.getId()));
+
+        assertEquals(2, cancelled);
+        assertEquals(List.of(res2), service.getAllReservations());
+        assertEquals(2, service.getAvailableCarsCount(CarType.SEDAN, baseTime, 3));
+        assertEquals(1, service.getAvailableCarsCount(CarType.VAN, baseTime, 3));
+    }
+
     // ========== Reservation Retrieval Tests ==========
 
+    @Test
+    void getReservationReturnsReservationById() {
+        Reservation res = service.reserveCar(CarType.SEDAN, baseTime, 3);
+
+        assertEquals(res, service.getReservation(res.getId()).orElseThrow());
+        assertTrue(service.getReservation("non-existent-id").isEmpty());
+
+        service.cancelReservation(res.getId());
+        assertTrue(service.getReservation(res.getId()).isEmpty());
+    }
+
     @Test
     void getCarReservationsReturnsAllReservationsForCar() {
         Reservation res1 = service.reserveCar(CarType.SEDAN, baseTime, 3);
@@ -286,6 +539,20 @@ class CarRentalServiceTest {
         assertEquals(1, service.getTotalCarsCount(CarType.VAN));
     }
 
+    @Test
+    void reservationsOnlyTouchCarsOfTheRequestedType() {
+        var mixedService = new CarRentalService(Map.of(CarType.SEDAN, 3, CarType.VAN, 1));
+
+        Reservation van = mixedService.reserveCar(CarType.VAN, baseTime, 2);
+
+        assertEquals(0, mixedService.getAvailableCarsCount(CarType.VAN, baseTime, 2));
+        assertEquals(3, mixedService.getAvailableCarsCount(CarType.SEDAN, baseTime, 2));
+        assertEquals(0, mixedService.getAvailableCarsCount(CarType.SUV, baseTime, 2));
+        assertEquals(1, mixedService.getCarReservations(van.getCarId()).size());
+        assertThrows(NoAvailableCarException.class,
+                () -> mixedService.reserveCar(CarType.SUV, baseTime, 2));
+    }
+
     @Test
     void getTotalCarsCountForNonExistentType() {
         // Create new service - default has none of this type
@@ -324,6 +591,14 @@ class CarRentalServiceTest {
         assertTrue(result.isPresent());
     }
 
+    @Test
+    void reserveCarOptionalStillValidatesInputs() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.reserveCarOptional(CarType.SEDAN, baseTime, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.reserveCarOptional(null, baseTime, 3));
+    }
+
     // ========== Reservation Properties Tests ==========
 
     @Test
@@ -338,6 +613,17 @@ class CarRentalServiceTest {
         assertEquals(baseTime.plusDays(5), res.getEnd());
     }
 
+    @Test
+    void reservationEpochSecondWindowMatchesStartAndEnd() {
+        Reservation res = service.reserveCar(CarType.SEDAN, baseTime, 2);
+
+        assertEquals(Reservation.toEpochSecond(res.getStart()), res.getStartEpochSecond());
+        assertEquals(Reservation.toEpochSecond(res.getEnd()), res.getEndEpochSecond());
+        assertTrue(res.overlaps(res.getEndEpochSecond() - 1, res.getEndEpochSecond() + 10));
+        assertFalse(res.overlaps(res.getEndEpochSecond(), res.getEndEpochSecond() + 10));
+        assertFalse(res.overlaps(res.getStartEpochSecond() - 10, res.getStartEpochSecond()));
+    }
+
     @Test
     void reservationIdIsUnique() {
         Reservation res1 = service.reserveCar(CarType.SEDAN, baseTime, 2);
@@ -346,6 +632,42 @@ class CarRentalServiceTest {
         assertNotEquals(res1.getId(), res2.getId());
     }
 
+    @Test
+    void reservationIdsAreTimeOrderedAndRoundTrip() {
+        Reservation res1 = service.reserveCar(CarType.SEDAN, baseTime, 2);
+        Reservation res2 = service.reserveCar(CarType.SUV, baseTime, 2);
+
+        assertTrue(res2.getNumericId() > res1.getNumericId());
+        assertEquals(Long.toString(res1.getNumericId()), res1.getId());
+        assertEquals(res1, service.getReservation(res1.getId()).orElseThrow());
+        assertEquals(Integer.toString(res1.getCarIndex()), res1.getCarId());
+    }
+
+    @Test
+    void reservationIdsAreUniqueUnderConcurrency() throws Exception {
+        var fleetService = new CarRentalService(Map.of(CarType.SEDAN, 2000));
+        var ids = ConcurrentHashMap.<String>newKeySet();
+
+        runConcurrently(16, () -> {
+            for (int i = 0; i < 125; i++) {
+                ids.add(fleetService.reserveCar(CarType.SEDAN, baseTime, 1).getId());
+            }
+        });
+
+        assertEquals(2000, ids.size());
+    }
+
+    @Test
+    void malformedIdsAreNotFound() {
+        service.reserveCar(CarType.SEDAN, baseTime, 2);
+
+        assertTrue(service.getReservation("-1").isEmpty());
+        assertTrue(service.getReservation("99999999999999999999").isEmpty());
+        assertTrue(service.getCarReservations("12abc").isEmpty());
+        assertTrue(service.getCarReservations("999").isEmpty());
+        assertFalse(service.cancelReservation(""));
+    }
+
     @Test
     void reservationEqualsIsBasedOnId() {
         Reservation res1 = service.reserveCar(CarType.SEDAN, baseTime, 3);
@@ -357,4 +679,928 @@ class CarRentalServiceTest {
 
         assertEquals(res1, res1Copy);
     }
-}
\ No newline at end of file
+
+    // ========== Concurrency Tests ==========
+
+    @Test
+    void concurrentReservationsForSameWindowNeverOverbook() throws Exception {
+        var fleetService = new CarRentalService(Map.of(CarType.SEDAN, 10));
+        int threads = 64;
+        AtomicInteger successes = new AtomicInteger();
+
+        runConcurrently(threads, () -> {
+            for (int i = 0; i < 20; i++) {
+                if (fleetService.reserveCarOptional(CarType.SEDAN, baseTime, 3).isPresent()) {
+                    successes.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(10, successes.get());
+        assertEquals(10, fleetService.getAllReservations().size());
+        assertEquals(0, fleetService.getAvailableCarsCount(CarType.SEDAN, baseTime, 3));
+    }
+
+    @Test
+    void concurrentRandomReservationsNeverOverlapOnACar() throws Exception {
+        var fleetService = new CarRentalService(Map.of(CarType.SEDAN, 5, CarType.SUV, 3));
+
+        runConcurrently(32, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 200; i++) {
+                CarType type = random.nextBoolean() ? CarType.SEDAN : CarType.SUV;
+                var reservation = fleetService.reserveCarOptional(
+                        type, baseTime.plusHours(random.nextInt(24 * 60)), 1 + random.nextInt(5));
+                if (reservation.isPresent() && random.nextInt(4) == 0) {
+                    fleetService.cancelReservation(reservation.get().getId());
+                }
+            }
+        });
+
+        var all = fleetService.getAllReservations();
+        for (Reservation reservation : all) {
+            for (Reservation other : fleetService.getCarReservations(reservation.getCarId())) {
+                if (other != reservation) {
+                    assertFalse(other.overlaps(reservation.getStart(), reservation.getNumberOfDays()),
+                            "Car double-booked: " + reservation + " and " + other);
+                }
+            }
+        }
+    }
+
+    @Test
+    void metricsCountBookingOutcomesAndLatencies() {
+        service.reserveCar(CarType.SUV, baseTime, 1);
+        service.reserveCarOptional(CarType.SUV, baseTime, 1);
+        service.getAvailableCarsCount(CarType.SEDAN, baseTime, 1);
+        service.cancelReservation("unknown");
+
+        var metrics = service.getMetrics();
+        assertEquals(1, metrics.getReservationSuccesses(CarType.SUV));
+        assertEquals(1, metrics.getReservationMisses(CarType.SUV));
+        assertEquals(0, metrics.getReservationSuccesses(CarType.SEDAN));
+        assertEquals(2, metrics.getLatency(ServiceMetrics.Operation.RESERVE).getCount());
+        assertEquals(1, metrics.getLatency(ServiceMetrics.Operation.AVAILABILITY_COUNT).getCount());
+        assertEquals(1, metrics.getLatency(ServiceMetrics.Operation.CANCEL).getCount());
+        // one SUV per attempt, then both sedans for the availability check
+        assertEquals(4, metrics.getCarsScanned().getSum());
+        assertEquals(1, metrics.getLockAcquisitions());
+    }
+
+    @Test
+    void bestFitKeepsLongWindowsOpen() {
+        // car 0: booked day 0 only; car 1: booked days 0 and 3, leaving a
+        // two-day gap. Built the same way under both strategies.
+        CarRentalService firstFit = fragmentedService(AllocationStrategy.FIRST_FIT);
+        CarRentalService bestFit = fragmentedService(AllocationStrategy.BEST_FIT);
+
+        assertEquals("0", firstFit.reserveCar(CarType.SEDAN, baseTime.plusDays(1), 2).getCarId());
+        assertEquals("1", bestFit.reserveCar(CarType.SEDAN, baseTime.plusDays(1), 2).getCarId());
+
+        // only best-fit still has a car free for a long rental
+        assertTrue(firstFit.reserveCarOptional(CarType.SEDAN, baseTime.plusDays(1), 5).isEmpty());
+        assertEquals("0", bestFit.reserveCar(CarType.SEDAN, baseTime.plusDays(1), 5).getCarId());
+    }
+
+    private CarRentalService fragmentedService(AllocationStrategy strategy) {
+        CarRentalService fragmented = new CarRentalService(Map.of(CarType.SEDAN, 2), null, strategy);
+        fragmented.reserveCar(CarType.SEDAN, baseTime, 1);
+        fragmented.reserveCar(CarType.SEDAN, baseTime, 1);
+        Reservation released = fragmented.reserveCar(CarType.SEDAN, baseTime.plusDays(3), 1);
+        fragmented.reserveCar(CarType.SEDAN, baseTime.plusDays(3), 1);
+        fragmented.cancelReservation(released.getId());
+        return fragmented;
+    }
+
+    @Test
+    void leastRecentlyUsedRotatesThroughCars() {
+        CarRentalService lru = new CarRentalService(Map.of(CarType.SEDAN, 3), null,
+                AllocationStrategy.LEAST_RECENTLY_USED);
+
+        List<String> cars = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            cars.add(lru.reserveCar(CarType.SEDAN, baseTime.plusDays(i * 10), 1).getCarId());
+        }
+
+        assertEquals(List.of("0", "1", "2", "0"), cars);
+    }
+
+    @Test
+    void loadBalancedPicksLeastBookedCar() {
+        CarRentalService balanced = new CarRentalService(Map.of(CarType.SEDAN, 2), null,
+                AllocationStrategy.LOAD_BALANCED);
+
+        Reservation week = balanced.reserveCar(CarType.SEDAN, baseTime, 7);
+        assertEquals("1", balanced.reserveCar(CarType.SEDAN, baseTime.plusDays(10), 1).getCarId());
+        assertEquals("1", balanced.reserveCar(CarType.SEDAN, baseTime.plusDays(20), 1).getCarId());
+
+        // releasing the week makes car 0 the least loaded again
+        balanced.cancelReservation(week.getId());
+        assertEquals("0", balanced.reserveCar(CarType.SEDAN, baseTime.plusDays(30), 1).getCarId());
+    }
+
+    @Test
+    void everyStrategyFillsTheFleetUnderContention() throws Exception {
+        for (AllocationStrategy strategy : AllocationStrategy.values()) {
+            CarRentalService fleetService = new CarRentalService(Map.of(CarType.SEDAN, 50), null, strategy);
+            AtomicInteger booked = new AtomicInteger();
+
+            runConcurrently(8, () -> {
+                for (int i = 0; i < 20; i++) {
+                    if (fleetService.reserveCarOptional(CarType.SEDAN, baseTime, 1).isPresent()) {
+                        booked.incrementAndGet();
+                    }
+                }
+            });
+
+            assertEquals(50, booked.get(), strategy + " left cars unbooked");
+            assertEquals(0, fleetService.getAvailableCarsCount(CarType.SEDAN, baseTime, 1));
+        }
+    }
+
+    @Test
+    void soldOutMissesStaySubLinear() {
+        for (AllocationStrategy strategy : AllocationStrategy.values()) {
+            CarRentalService soldOut = new CarRentalService(Map.of(CarType.SEDAN, 500), null, strategy);
+            for (int i = 0; i < 500; i++) {
+                // every car busy on day 10, with gaps of varying length around it
+                soldOut.reserveCar(CarType.SEDAN, baseTime.plusDays(i % 7), 1);
+                soldOut.reserveCar(CarType.SEDAN, baseTime.plusDays(10), 1);
+            }
+            long before = soldOut.getMetrics().getCarsScanned().getSum();
+
+            assertTrue(soldOut.reserveCarOptional(CarType.SEDAN, baseTime.plusDays(10), 1).isEmpty());
+
+            long scanned = soldOut.getMetrics().getCarsScanned().getSum() - before;
+            if (strategy == AllocationStrategy.BEST_FIT) {
+                // no gap contains the window, so none is visited
+                assertEquals(0, scanned);
+            } else if (strategy == AllocationStrategy.FIRST_FIT) {
+                assertTrue(scanned <= 500, strategy + " scanned " + scanned);
+            } else {
+                // the key-order budget, then a gap search that finds nothing
+                assertTrue(scanned <= 32, strategy + " scanned " + scanned);
+            }
+        }
+    }
+
+    @Test
+    void bestFitFindsACarWheneverOneIsFree() {
+        findsACarWheneverOneIsFree(AllocationStrategy.BEST_FIT, 20, 3000);
+    }
+
+    @Test
+    void keyedStrategiesFindACarPastTheirBudget() {
+        // more cars than the key-order budget, so most picks come from the gap search
+        findsACarWheneverOneIsFree(AllocationStrategy.LEAST_RECENTLY_USED, 100, 6000);
+        findsACarWheneverOneIsFree(AllocationStrategy.LOAD_BALANCED, 100, 6000);
+    }
+
+    private void findsACarWheneverOneIsFree(AllocationStrategy strategy, int cars, int rounds) {
+        CarRentalService allocating = new CarRentalService(Map.of(CarType.SEDAN, cars), null, strategy);
+        List<Reservation> live = new ArrayList<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < rounds; i++) {
+            if (!live.isEmpty() && random.nextInt(3) == 0) {
+                allocating.cancelReservation(live.remove(random.nextInt(live.size())).getId());
+                continue;
+            }
+            LocalDateTime start = baseTime.plusHours(random.nextInt(60 * 24));
+            int days = 1 + random.nextInt(random.nextBoolean() ? 3 : 20);
+            boolean free = allocating.getAvailableCarsCount(CarType.SEDAN, start, days) > 0;
+            Optional<Reservation> booked = allocating.reserveCarOptional(CarType.SEDAN, start, days);
+            assertEquals(free, booked.isPresent(), strategy + " window " + start + " for " + days + " days");
+            booked.ifPresent(live::add);
+        }
+    }
+
+    @Test
+    void repeatedlyReadWindowSurvivesEviction() {
+        ServiceMetrics metrics = new ServiceMetrics();
+        AvailabilityCache cache = new AvailabilityCache(4, metrics);
+        // the hot window starts earliest, so evicting by start would drop it first
+        cache.put(CarType.SEDAN, 0, 10, 7, cache.epoch(CarType.SEDAN));
+        for (int i = 1; i <= 100; i++) {
+            assertEquals(7, cache.get(CarType.SEDAN, 0, 10));
+            cache.put(CarType.SEDAN, i * 100L, i * 100L + 10, i, cache.epoch(CarType.SEDAN));
+        }
+
+        assertEquals(7, cache.get(CarType.SEDAN, 0, 10));
+        assertEquals(97, metrics.getCacheEvictions());
+        // cold windows were evicted instead
+        assertEquals(-1, cache.get(CarType.SEDAN, 100, 110));
+    }
+
+    @Test
+    void cachedAvailabilityReflectsReservesAndCancels() {
+        assertEquals(2, service.getAvailableCarsCount(CarType.SEDAN, baseTime, 3));
+        assertEquals(2, service.getAvailableCarsCount(CarType.SEDAN, baseTime, 3));
+        assertEquals(1, service.getMetrics().getCacheHits());
+
+        Reservation reservation = service.reserveCar(CarType.SEDAN, baseTime.plusDays(2), 1);
+        assertEquals(1, service.getAvailableCarsCount(CarType.SEDAN, baseTime, 3));
+
+        service.cancelReservation(reservation.getId());
+        assertEquals(2, service.getAvailableCarsCount(CarType.SEDAN, baseTime, 3));
+    }
+
+    @Test
+    void bookingOnlyInvalidatesOverlappingWindowsOfItsType() {
+        service.getAvailableCarsCount(CarType.SEDAN, baseTime, 1);
+        service.getAvailableCarsCount(CarType.SEDAN, baseTime.plusDays(10), 1);
+        service.getAvailableCarsCount(CarType.SUV, baseTime, 1);
+
+        service.reserveCar(CarType.SEDAN, baseTime, 1);
+        assertEquals(1, service.getMetrics().getCacheInvalidations());
+
+        long hits = service.getMetrics().getCacheHits();
+        assertEquals(2, service.getAvailableCarsCount(CarType.SEDAN, baseTime.plusDays(10), 1));
+        assertEquals(1, service.getAvailableCarsCount(CarType.SUV, baseTime, 1));
+        assertEquals(hits + 2, service.getMetrics().getCacheHits());
+    }
+
+    @Test
+    void bookingDropsLongCachedWindowsStartingWellBeforeIt() {
+        assertEquals(2, service.getAvailableCarsCount(CarType.SEDAN, baseTime, 60));
+        assertEquals(2, service.getAvailableCarsCount(CarType.SEDAN, baseTime.plusDays(100), 1));
+
+        service.reserveCar(CarType.SEDAN, baseTime.plusDays(45), 1);
+        assertEquals(1, service.getMetrics().getCacheInvalidations());
+        assertEquals(1, service.getAvailableCarsCount(CarType.SEDAN, baseTime, 60));
+        assertEquals(2, service.getAvailableCarsCount(CarType.SEDAN, baseTime.plusDays(100), 1));
+    }
+
+    @Test
+    void cachedAvailabilityIsNeverStaleAfterConcurrentChanges() throws Exception {
+        CarRentalService fleetService = new CarRentalService(Map.of(CarType.SEDAN, 20));
+
+        runConcurrently(8, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 2_000; i++) {
+                LocalDateTime start = baseTime.plusDays(random.nextInt(10));
+                if (random.nextBoolean()) {
+                    fleetService.getAvailableCarsCount(CarType.SEDAN, start, 1 + random.nextInt(3));
+                } else {
+                    var reservation = fleetService.reserveCarOptional(CarType.SEDAN, start, 1 + random.nextInt(3));
+                    if (reservation.isPresent() && random.nextInt(3) > 0) {
+                        fleetService.cancelReservation(reservation.get().getId());
+                    }
+                }
+            }
+        });
+
+        for (int day = 0; day < 10; day++) {
+            for (int days = 1; days <= 3; days++) {
+                LocalDateTime start = baseTime.plusDays(day);
+                int uncached = fleetService.getAvailableCarsCounts(CarType.SEDAN, start, 1, Duration.ofDays(days))[0];
+                assertEquals(uncached, fleetService.getAvailableCarsCount(CarType.SEDAN, start, days),
+                        "stale count for day " + day + ", " + days + " days");
+            }
+        }
+    }
+
+    @Test
+    void archivingMovesEndedReservationsOutOfLiveQueries() {
+        Reservation past = service.reserveCar(CarType.SEDAN, baseTime, 2);
+        Reservation ongoing = service.reserveCar(CarType.SEDAN, baseTime.plusDays(1), 3);
+        Reservation future = service.reserveCar(CarType.SEDAN, baseTime.plusDays(10), 1);
+
+        assertEquals(1, service.archiveEndedBefore(baseTime.plusDays(2)));
+
+        assertEquals(List.of(ongoing, future), service.getAllReservations());
+        assertEquals(List.of(past, ongoing, future), service.getAllReservations(true));
+        assertEquals(List.of(future), service.getCarReservations(past.getCarId()));
+        assertEquals(List.of(past, future), service.getCarReservations(past.getCarId(), true));
+        assertTrue(service.getReservation(past.getId()).isEmpty());
+        assertFalse(service.cancelReservation(past.getId()));
+
+        // live bookings are untouched
+        assertEquals(1, service.getAvailableCarsCount(CarType.SEDAN, baseTime.plusDays(10), 1));
+        assertTrue(service.cancelReservation(ongoing.getId()));
+    }
+
+    @Test
+    void archivingIsIdempotentAndRejectsNullCutoff() {
+        service.reserveCar(CarType.SUV, baseTime, 1);
+        assertEquals(1, service.archiveEndedBefore(baseTime.plusDays(5)));
+        assertEquals(0, service.archiveEndedBefore(baseTime.plusDays(5)));
+        assertEquals(1, service.getAllReservations(true).size());
+        assertThrows(IllegalArgumentException.class, () -> service.archiveEndedBefore(null));
+    }
+
+    @Test
+    void archiverSweepsWithItsClock() {
+        service.reserveCar(CarType.VAN, baseTime, 1);
+        service.reserveCar(CarType.VAN, baseTime.plusDays(30), 1);
+        Clock clock = Clock.fixed(baseTime.plusDays(7).toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+
+        try (ReservationArchiver archiver = new ReservationArchiver(service, Duration.ofDays(1), clock)) {
+            archiver.sweep();
+        }
+
+        assertEquals(1, service.getAllReservations().size());
+        assertEquals(2, service.getAllReservations(true).size());
+    }
+
+    @Test
+    void streamReservationsAppliesFiltersInStartOrder() {
+        Reservation early = service.reserveCar(CarType.SEDAN, baseTime, 10);
+        Reservation suv = service.reserveCar(CarType.SUV, baseTime.plusDays(3), 2);
+        Reservation later = service.reserveCar(CarType.SEDAN, baseTime.plusDays(5), 1);
+        Reservation outside = service.reserveCar(CarType.SEDAN, baseTime.plusDays(20), 1);
+
+        assertEquals(List.of(early, suv, later, outside),
+                service.streamReservations(ReservationQuery.all()).toList());
+        assertEquals(List.of(early, later, outside),
+                service.streamReservations(ReservationQuery.all().withCarType(CarType.SEDAN)).toList());
+        // the window catches the long booking that started before it
+        assertEquals(List.of(early, later), service.streamReservations(ReservationQuery.all()
+                .withCarType(CarType.SEDAN)
+                .withWindow(baseTime.plusDays(4), baseTime.plusDays(6))).toList());
+        assertEquals(List.of(early), service.streamReservations(ReservationQuery.all()
+                .withCar(early.getCarId())
+                .withWindow(baseTime.plusDays(4), baseTime.plusDays(6))).toList());
+        assertEquals(List.of(), service.streamReservations(ReservationQuery.all().withCar("99")).toList());
+        assertEquals(List.of(), service.streamReservations(ReservationQuery.all()
+                .withCar(early.getCarId())
+                .withCarType(CarType.SUV)).toList());
+    }
+
+    @Test
+    void typePagesComeFromThatTypesOwnIndex() {
+        CarRentalService mixed = new CarRentalService(Map.of(CarType.SEDAN, 50, CarType.VAN, 2));
+        List<Reservation> vans = new ArrayList<>();
+        for (int day = 0; day < 30; day++) {
+            for (int car = 0; car < 50; car++) {
+                mixed.reserveCar(CarType.SEDAN, baseTime.plusDays(day), 1);
+            }
+            if (day % 3 == 0) {
+                vans.add(mixed.reserveCar(CarType.VAN, baseTime.plusDays(day), 1));
+            }
+        }
+        mixed.cancelReservation(vans.remove(4).getId());
+
+        List<Reservation> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            ReservationPage page = mixed.getReservations(ReservationQuery.all().withCarType(CarType.VAN), cursor, 3);
+            seen.addAll(page.getReservations());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(vans, seen);
+        assertEquals(List.of(vans.get(1)), mixed.streamReservations(ReservationQuery.all()
+                .withCarType(CarType.VAN)
+                .withWindow(baseTime.plusDays(3), baseTime.plusDays(4))).toList());
+    }
+
+    @Test
+    void pagesWalkEveryReservationOnceDespiteConcurrentChanges() {
+        CarRentalService fleetService = new CarRentalService(Map.of(CarType.SEDAN, 5));
+        List<Reservation> expected = new ArrayList<>();
+        for (int day = 0; day < 20; day++) {
+            for (int car = 0; car < 5; car++) {
+                expected.add(fleetService.reserveCar(CarType.SEDAN, baseTime.plusDays(day), 1));
+            }
+        }
+
+        List<Reservation> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            ReservationPage page = fleetService.getReservations(ReservationQuery.all(), cursor, 7);
+            seen.addAll(page.getReservations());
+            cursor = page.getNextCursor();
+            pages++;
+            if (pages == 3) {
+                // a booking before the cursor must not shift later pages
+                fleetService.cancelReservation(expected.get(0).getId());
+            }
+        } while (cursor != null);
+
+        assertEquals(15, pages);
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void pagingRejectsInvalidInput() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getReservations(ReservationQuery.all(), null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getReservations(ReservationQuery.all(), "not-a-cursor", 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getReservations(null, null, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> ReservationQuery.all().withWindow(baseTime, baseTime));
+    }
+
+    @Test
+    void occupancyEngineAgreesWithIntervalChecks() {
+        Map<CarType, Integer> inventory = Map.of(CarType.SEDAN, 3, CarType.SUV, 2);
+        CarRentalService plain = new CarRentalService(inventory);
+        CarRentalService bitmaps = new CarRentalService(inventory);
+        LocalDateTime midnight = baseTime.toLocalDate().atStartOfDay();
+        bitmaps.enableOccupancyEngine(midnight.toLocalDate(), 120);
+
+        // identical first-fit histories, with starts at odd hours so that
+        // bookings share days with each other
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<String[]> booked = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            CarType type = random.nextBoolean() ? CarType.SEDAN : CarType.SUV;
+            LocalDateTime start = midnight.plusHours(random.nextInt(100 * 24));
+            int days = 1 + random.nextInt(5);
+            var a = plain.reserveCarOptional(type, start, days);
+            var b = bitmaps.reserveCarOptional(type, start, days);
+            assertEquals(a.map(Reservation::getCarId), b.map(Reservation::getCarId));
+            if (a.isPresent()) {
+                booked.add(new String[] { a.get().getId(), b.get().getId() });
+            }
+            if (!booked.isEmpty() && random.nextInt(3) == 0) {
+                String[] cancelled = booked.remove(random.nextInt(booked.size()));
+                assertTrue(plain.cancelReservation(cancelled[0]));
+                assertTrue(bitmaps.cancelReservation(cancelled[1]));
+            }
+        }
+
+        for (CarType type : List.of(CarType.SEDAN, CarType.SUV)) {
+            for (int day = 0; day < 110; day++) {
+                for (int days : new int[] { 1, 3, 10 }) {
+                    LocalDateTime start = midnight.plusDays(day);
+                    assertEquals(plain.getAvailableCarsCount(type, start, days),
+                            bitmaps.getAvailableCarsCount(type, start, days), type + " " + start + " " + days);
+                    // not aligned to midnight, so answered by the interval check
+                    assertEquals(plain.getAvailableCarsCount(type, start.plusHours(7), days),
+                            bitmaps.getAvailableCarsCount(type, start.plusHours(7), days));
+                }
+            }
+        }
+    }
+
+    @Test
+    void occupancyEngineTracksArchivingAndRollingHorizon() {
+        LocalDateTime midnight = baseTime.toLocalDate().atStartOfDay();
+        service.reserveCar(CarType.SUV, baseTime, 2);
+        service.enableOccupancyEngine(midnight.toLocalDate(), 30);
+        assertEquals(0, service.getAvailableCarsCount(CarType.SUV, midnight, 1));
+        assertEquals(0, service.getAvailableCarsCount(CarType.SUV, midnight.plusDays(2), 1));
+        assertEquals(1, service.getAvailableCarsCount(CarType.SUV, midnight.plusDays(3), 1));
+
+        service.archiveEndedBefore(baseTime.plusDays(2));
+        assertEquals(1, service.getAvailableCarsCount(CarType.SUV, midnight, 3));
+
+        // past the horizon until it is rolled forward
+        service.reserveCar(CarType.SUV, midnight.plusDays(40), 1);
+        assertEquals(0, service.getAvailableCarsCount(CarType.SUV, midnight.plusDays(40), 1));
+        service.enableOccupancyEngine(midnight.toLocalDate().plusDays(30), 30);
+        assertEquals(0, service.getAvailableCarsCount(CarType.SUV, midnight.plusDays(39), 2));
+        assertEquals(1, service.getAvailableCarsCount(CarType.SUV, midnight.plusDays(41), 5));
+
+        assertThrows(IllegalArgumentException.class, () -> service.enableOccupancyEngine(null, 30));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.enableOccupancyEngine(midnight.toLocalDate(), 0));
+    }
+
+    @Test
+    void rollingTheHorizonKeepsChangesMadeDuringTheRebuild() throws Exception {
+        CarRentalService bitmaps = new CarRentalService(Map.of(CarType.SEDAN, 40));
+        LocalDate today = baseTime.toLocalDate();
+        LocalDateTime midnight = today.atStartOfDay();
+        bitmaps.enableOccupancyEngine(today, 30);
+        AtomicBoolean rolling = new AtomicBoolean(true);
+        Thread roller = new Thread(() -> {
+            for (int i = 0; i < 200; i++) {
+                bitmaps.enableOccupancyEngine(today, 30);
+            }
+            rolling.set(false);
+        });
+        roller.start();
+        runConcurrently(4, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            List<Reservation> mine = new ArrayList<>();
+            while (rolling.get()) {
+                if (!mine.isEmpty() && random.nextInt(3) == 0) {
+                    bitmaps.cancelReservation(mine.remove(random.nextInt(mine.size())).getId());
+                } else {
+                    bitmaps.reserveCarOptional(CarType.SEDAN,
+                            midnight.plusDays(random.nextInt(25)).plusHours(random.nextInt(24)),
+                            1 + random.nextInt(4)).ifPresent(mine::add);
+                }
+            }
+        });
+        roller.join();
+
+        List<Reservation> live = bitmaps.getAllReservations();
+        for (int day = 0; day < 26; day++) {
+            for (int days = 1; days < 5; days++) {
+                long start = Reservation.toEpochSecond(midnight.plusDays(day));
+                long end = start + days * Reservation.SECONDS_PER_DAY;
+                long busy = live.stream()
+                        .filter(r -> r.getStartEpochSecond() < end && r.getEndEpochSecond() > start)
+                        .map(Reservation::getCarId).distinct().count();
+                assertEquals(40 - busy, bitmaps.getAvailableCarsCount(CarType.SEDAN, midnight.plusDays(day), days),
+                        "day " + day + " for " + days);
+            }
+        }
+    }
+
+    @Test
+    void horizonRollerStartsTheHorizonToday() {
+        Clock clock = Clock.fixed(baseTime.plusDays(3).toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        service.reserveCar(CarType.SUV, baseTime.plusDays(40), 1);
+
+        try (OccupancyHorizonRoller roller = new OccupancyHorizonRoller(service, 60, clock)) {
+            assertEquals(baseTime.toLocalDate().plusDays(3), roller.roll());
+        }
+
+        LocalDateTime midnight = baseTime.toLocalDate().atStartOfDay();
+        assertEquals(0, service.getAvailableCarsCount(CarType.SUV, midnight.plusDays(40), 1));
+        assertEquals(1, service.getAvailableCarsCount(CarType.SUV, midnight.plusDays(42), 1));
+        assertThrows(IllegalArgumentException.class, () -> new OccupancyHorizonRoller(service, 0, clock));
+    }
+
+    @Test
+    void occupancyEngineStaysExactUnderConcurrentChanges() throws Exception {
+        CarRentalService bitmaps = new CarRentalService(Map.of(CarType.SEDAN, 4));
+        LocalDateTime midnight = baseTime.toLocalDate().atStartOfDay();
+        bitmaps.enableOccupancyEngine(midnight.toLocalDate(), 20);
+
+        runConcurrently(8, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 2_000; i++) {
+                LocalDateTime start = midnight.plusHours(random.nextInt(14 * 24));
+                bitmaps.reserveCarOptional(CarType.SEDAN, start, 1 + random.nextInt(2))
+                        .filter(r -> random.nextBoolean())
+                        .ifPresent(r -> bitmaps.cancelReservation(r.getId()));
+            }
+        });
+
+        for (int day = 0; day < 18; day++) {
+            long from = Reservation.toEpochSecond(midnight.plusDays(day));
+            long to = from + Reservation.SECONDS_PER_DAY;
+            int free = 0;
+            for (int car = 0; car < 4; car++) {
+                if (bitmaps.getCarReservations(Integer.toString(car)).stream()
+                        .noneMatch(r -> r.getStartEpochSecond() < to && r.getEndEpochSecond() > from)) {
+                    free++;
+                }
+            }
+            assertEquals(free, bitmaps.getAvailableCarsCount(CarType.SEDAN, midnight.plusDays(day), 1));
+        }
+    }
+
+    @Test
+    void rollingTheHorizonDuringCountsNeverMixesHorizons() throws Exception {
+        CarRentalService plain = new CarRentalService(Map.of(CarType.SEDAN, 64));
+        CarRentalService bitmaps = new CarRentalService(Map.of(CarType.SEDAN, 64));
+        LocalDate today = baseTime.toLocalDate();
+        LocalDateTime midnight = today.atStartOfDay();
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime start = midnight.plusHours(ThreadLocalRandom.current().nextInt(8 * 24));
+            plain.reserveCarOptional(CarType.SEDAN, start, 1)
+                    .ifPresent(r -> bitmaps.reserveCar(CarType.SEDAN, start, 1));
+        }
+        // more windows than the cache holds, so counts keep being recomputed
+        int[][] expected = new int[100][20];
+        for (int day = 0; day < 100; day++) {
+            for (int days = 1; days < 20; days++) {
+                expected[day][days] = plain.getAvailableCarsCount(CarType.SEDAN, midnight.plusDays(day), days);
+            }
+        }
+        bitmaps.enableOccupancyEngine(today, 16);
+
+        AtomicBoolean rolling = new AtomicBoolean(true);
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        Thread roller = new Thread(() -> {
+            for (int i = 0; i < 500; i++) {
+                // alternate start and length so offsets and bitmap sizes both change
+                bitmaps.enableOccupancyEngine(today.plusDays(i % 3), i % 2 == 0 ? 4 : 200);
+            }
+            rolling.set(false);
+        });
+        roller.start();
+        runConcurrently(4, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (rolling.get()) {
+                int day = random.nextInt(100);
+                int days = 1 + random.nextInt(19);
+                int counted = bitmaps.getAvailableCarsCount(CarType.SEDAN, midnight.plusDays(day), days);
+                if (counted != expected[day][days]) {
+                    errors.add("day " + day + " for " + days + ": " + counted + " != " + expected[day][days]);
+                }
+            }
+        });
+        roller.join();
+        assertEquals(List.of(), errors);
+    }
+
+    @Test
+    void cancellationCompletesWaitersInArrivalOrder() throws Exception {
+        Reservation held = service.reserveCar(CarType.SUV, baseTime, 3);
+        var first = service.reserveCarOrWait(CarType.SUV, baseTime.plusDays(1), 1);
+        var second = service.reserveCarOrWait(CarType.SUV, baseTime.plusDays(1), 1);
+        var elsewhere = service.reserveCarOrWait(CarType.SUV, baseTime.plusDays(2), 1);
+        assertFalse(first.isDone());
+        assertEquals(3, service.getWaitlistSize(CarType.SUV));
+
+        service.cancelReservation(held.getId());
+
+        Reservation booked = first.get(1, TimeUnit.SECONDS);
+        assertEquals(baseTime.plusDays(1), booked.getStart());
+        assertNotNull(elsewhere.get(1, TimeUnit.SECONDS), "a non-overlapping window fits alongside");
+        assertFalse(second.isDone());
+        assertEquals(1, service.getWaitlistSize(CarType.SUV));
+        assertEquals(Optional.of(booked), service.getReservation(booked.getId()));
+
+        // a free car completes the future immediately
+        assertTrue(service.reserveCarOrWait(CarType.VAN, baseTime, 1).isDone());
+    }
+
+    @Test
+    void abandonedWaitersLeaveTheLine() throws Exception {
+        service.reserveCar(CarType.SUV, baseTime, 1);
+        var waiting = service.reserveCarOrWait(CarType.SUV, baseTime, 1);
+        var next = service.reserveCarOrWait(CarType.SUV, baseTime, 1);
+        waiting.cancel(false);
+        assertEquals(1, service.getWaitlistSize(CarType.SUV));
+
+        service.cancelReservations(service.getAllReservations().stream().map(Reservation::getId).toList());
+        assertNotNull(next.get(1, TimeUnit.SECONDS));
+        assertEquals(1, service.getAllReservations().size());
+    }
+
+    @Test
+    void waitersAreMatchedOffTheCancellingThread() throws Exception {
+        List<Runnable> matching = new ArrayList<>();
+        service.setWaitlistExecutor(matching::add);
+        Reservation held = service.reserveCar(CarType.SUV, baseTime, 1);
+        var waiting = service.reserveCarOrWait(CarType.SUV, baseTime, 1);
+
+        service.cancelReservation(held.getId());
+        service.cancelReservation(service.reserveCar(CarType.SUV, baseTime.plusDays(5), 1).getId());
+
+        // both cancellations are matched by one task
+        assertFalse(waiting.isDone());
+        assertEquals(1, matching.size());
+        matching.get(0).run();
+        assertEquals(baseTime, waiting.get(1, TimeUnit.SECONDS).getStart());
+    }
+
+    @Test
+    void waitersAreMatchedOnTheWaitlistsOwnThreads() throws Exception {
+        Reservation held = service.reserveCar(CarType.SUV, baseTime, 1);
+        var matchedOn = service.reserveCarOrWait(CarType.SUV, baseTime, 1)
+                .thenApply(reservation -> Thread.currentThread());
+
+        service.cancelReservation(held.getId());
+
+        // matching may block on the journal, so it stays off the common pool
+        Thread thread = matchedOn.get(1, TimeUnit.SECONDS);
+        assertEquals("waitlist-matcher", thread.getName());
+        assertTrue(thread.isDaemon());
+    }
+
+    @Test
+    void aFullLineOfAbandonedWaitersEmptiesAndRefills() throws Exception {
+        Reservation held = service.reserveCar(CarType.SUV, baseTime, 1);
+        List<CompletableFuture<Reservation>> waiters = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            waiters.add(service.reserveCarOrWait(CarType.SUV, baseTime, 1));
+        }
+
+        // from both ends towards the middle, so no order of leaving is favoured
+        for (int i = 0; i < 5_000; i++) {
+            waiters.get(i).cancel(false);
+            waiters.get(9_999 - i).cancel(false);
+        }
+
+        assertEquals(0, service.getWaitlistSize(CarType.SUV));
+        var next = service.reserveCarOrWait(CarType.SUV, baseTime, 1);
+        assertEquals(1, service.getWaitlistSize(CarType.SUV));
+        service.cancelReservation(held.getId());
+        assertEquals(baseTime, next.get(1, TimeUnit.SECONDS).getStart());
+        assertEquals(0, service.getWaitlistSize(CarType.SUV));
+    }
+
+    @Test
+    void fullWaitlistTurnsRequestsAway() {
+        service.reserveCar(CarType.SUV, baseTime, 1);
+        for (int i = 0; i < 10_000; i++) {
+            assertFalse(service.reserveCarOrWait(CarType.SUV, baseTime, 1).isDone());
+        }
+
+        var turnedAway = service.reserveCarOrWait(CarType.SUV, baseTime, 1);
+
+        CompletionException failure = assertThrows(CompletionException.class, turnedAway::join);
+        assertTrue(failure.getCause() instanceof NoAvailableCarException);
+        assertEquals(10_000, service.getWaitlistSize(CarType.SUV));
+    }
+
+    @Test
+    void everyWaiterIsServedByConcurrentCancellations() throws Exception {
+        CarRentalService waitingService = new CarRentalService(Map.of(CarType.SEDAN, 4));
+        List<Reservation> held = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            held.add(waitingService.reserveCar(CarType.SEDAN, baseTime, 1));
+        }
+        List<CompletableFuture<Reservation>> waiters =
+                Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger next = new AtomicInteger();
+        runConcurrently(8, () -> {
+            int i = next.getAndIncrement();
+            if (i < 4) {
+                waitingService.cancelReservation(held.get(i).getId());
+            } else {
+                waiters.add(waitingService.reserveCarOrWait(CarType.SEDAN, baseTime, 1));
+            }
+        });
+
+        // four cars, four waiters: whatever the interleaving, none is stranded
+        for (var waiter : waiters) {
+            assertNotNull(waiter.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(0, waitingService.getWaitlistSize(CarType.SEDAN));
+        assertEquals(0, waitingService.getAvailableCarsCount(CarType.SEDAN, baseTime, 1));
+    }
+
+    @Test
+    void addedCarsTakeBookingsAndServeWaiters() throws Exception {
+        service.reserveCar(CarType.SUV, baseTime, 2);
+        var waiting = service.reserveCarOrWait(CarType.SUV, baseTime, 1);
+
+        List<String> added = service.addCars(CarType.SUV, 2);
+
+        assertEquals(List.of("4", "5"), added);
+        assertEquals(3, service.getTotalCarsCount(CarType.SUV));
+        assertEquals("4", waiting.get(1, TimeUnit.SECONDS).getCarId());
+        assertEquals(1, service.getAvailableCarsCount(CarType.SUV, baseTime, 1));
+        assertEquals(2, service.getTotalCarsCount(CarType.SEDAN), "other pools are untouched");
+        assertThrows(IllegalArgumentException.class, () -> service.addCars(CarType.SUV, 0));
+        assertThrows(IllegalArgumentException.class, () -> service.addCars(null, 1));
+    }
+
+    @Test
+    void retiringACarMovesItsBookingsToOtherCars() {
+        Reservation first = service.reserveCar(CarType.SEDAN, baseTime, 2);
+        Reservation later = service.reserveCar(CarType.SEDAN, baseTime.plusDays(10), 1);
+        assertEquals("0", first.getCarId());
+
+        assertEquals(List.of(), service.retireCar("0"));
+
+        Reservation moved = service.getReservation(first.getId()).orElseThrow();
+        assertEquals("1", moved.getCarId());
+        assertEquals(first.getStart(), moved.getStart());
+        assertEquals("1", service.getReservation(later.getId()).orElseThrow().getCarId());
+        assertEquals(List.of(), service.getCarReservations("0"));
+        assertEquals(1, service.getTotalCarsCount(CarType.SEDAN));
+        assertEquals(0, service.getAvailableCarsCount(CarType.SEDAN, baseTime, 1));
+        assertEquals(1, service.getAvailableCarsCount(CarType.SEDAN, baseTime.plusDays(5), 1));
+
+        // the moved booking is cancelled from its new car
+        assertTrue(service.cancelReservation(first.getId()));
+        assertEquals(1, service.getAvailableCarsCount(CarType.SEDAN, baseTime, 1));
+        assertThrows(IllegalArgumentException.class, () -> service.retireCar("99"));
+    }
+
+    @Test
+    void bookingsNoCarCanTakeStayOnTheRetiredCar() {
+        Reservation suv = service.reserveCar(CarType.SUV, baseTime, 1);
+
+        assertEquals(List.of(suv), service.retireCar(suv.getCarId()));
+        assertEquals(List.of(suv), service.getCarReservations(suv.getCarId()));
+        assertFalse(service.reserveCarOptional(CarType.SUV, baseTime.plusDays(5), 1).isPresent());
+
+        // once another SUV exists, retrying moves it there
+        service.addCars(CarType.SUV, 1);
+        assertEquals(List.of(), service.retireCar(suv.getCarId()));
+        assertEquals("4", service.getReservation(suv.getId()).orElseThrow().getCarId());
+    }
+
+    @Test
+    void fleetChangesRunAlongsideBookings() throws Exception {
+        CarRentalService live = new CarRentalService(Map.of(CarType.SEDAN, 20), null, AllocationStrategy.BEST_FIT);
+        live.enableOccupancyEngine(baseTime.toLocalDate(), 60);
+        List<Reservation> stranded = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger worker = new AtomicInteger();
+        runConcurrently(8, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (worker.getAndIncrement() == 0) {
+                for (int car = 0; car < 10; car++) {
+                    live.addCars(CarType.SEDAN, 1);
+                    stranded.addAll(live.retireCar(Integer.toString(car)));
+                }
+                return;
+            }
+            for (int i = 0; i < 500; i++) {
+                live.reserveCarOptional(CarType.SEDAN, baseTime.plusHours(random.nextInt(40 * 24)), 1 + random.nextInt(3))
+                        .filter(r -> random.nextInt(4) == 0)
+                        .ifPresent(r -> live.cancelReservation(r.getId()));
+            }
+        });
+
+        assertEquals(20, live.getTotalCarsCount(CarType.SEDAN));
+        for (Reservation reservation : live.getAllReservations()) {
+            int car = Integer.parseInt(reservation.getCarId());
+            assertTrue(car >= 10 || stranded.contains(reservation), "live booking left on retired car " + car);
+            assertTrue(live.getCarReservations(reservation.getCarId()).contains(reservation));
+        }
+        for (int car = 0; car < 30; car++) {
+            List<Reservation> bookings = live.getCarReservations(Integer.toString(car));
+            for (int i = 1; i < bookings.size(); i++) {
+                assertFalse(bookings.get(i).overlaps(bookings.get(i - 1).getStartEpochSecond(),
+                        bookings.get(i - 1).getEndEpochSecond()), "overlap on car " + car);
+            }
+        }
+        LocalDateTime midnight = baseTime.toLocalDate().atStartOfDay();
+        for (int day = 0; day < 45; day++) {
+            long from = Reservation.toEpochSecond(midnight.plusDays(day));
+            long to = from + Reservation.SECONDS_PER_DAY;
+            int free = 0;
+            for (int car = 10; car < 30; car++) {
+                if (live.getCarReservations(Integer.toString(car)).stream().noneMatch(r -> r.overlaps(from, to))) {
+                    free++;
+                }
+            }
+            // whole days are counted from the bitmaps
+            assertEquals(free, live.getAvailableCarsCount(CarType.SEDAN, midnight.plusDays(day), 1), "day " + day);
+        }
+    }
+
+    @Test
+    void parallelScansMatchSequentialOnesAndNeverDoubleBook() throws Exception {
+        int cars = 5_000;
+        CarRentalService parallel = new CarRentalService(Map.of(CarType.SEDAN, cars));
+        ForkJoinPool executor = new ForkJoinPool(4);
+        try {
+            parallel.setParallelEvaluation(1, executor);
+            // first fit still means the lowest free car
+            for (int i = 0; i < 3_000; i++) {
+                parallel.reserveCar(CarType.SEDAN, baseTime, 1);
+            }
+            assertEquals("3000", parallel.reserveCar(CarType.SEDAN, baseTime, 1).getCarId());
+            assertEquals(cars - 3_001, parallel.getAvailableCarsCount(CarType.SEDAN, baseTime, 1));
+
+            AtomicInteger booked = new AtomicInteger();
+            runConcurrently(8, () -> {
+                while (parallel.reserveCarOptional(CarType.SEDAN, baseTime, 1).isPresent()) {
+                    booked.incrementAndGet();
+                }
+            });
+            assertEquals(cars - 3_001, booked.get());
+            assertEquals(0, parallel.getAvailableCarsCount(CarType.SEDAN, baseTime, 1));
+            assertEquals(cars, parallel.getAllReservations().stream().map(Reservation::getCarId).distinct().count());
+        } finally {
+            executor.shutdown();
+        }
+        assertThrows(IllegalArgumentException.class, () -> service.setParallelEvaluation(0, executor));
+        assertThrows(IllegalArgumentException.class, () -> service.setParallelEvaluation(1, null));
+    }
+
+    @Test
+    void eventStreamCarriesEveryChangeInOrder() {
+        assertTrue(service.getEventStream().isEmpty());
+        ReservationEventStream.Subscription subscription = service.enableEventStream(16)
+                .subscribe(ReservationEventStream.OverflowPolicy.FAIL);
+        assertThrows(IllegalStateException.class, () -> service.enableEventStream(16));
+
+        Reservation single = service.reserveCar(CarType.SEDAN, baseTime, 2);
+        List<Reservation> batch = service.reserveCars(List.of(
+                new ReservationRequest(CarType.SUV, baseTime, 1),
+                new ReservationRequest(CarType.VAN, baseTime, 1))).getReservations();
+        service.cancelReservations(batch.stream().map(Reservation::getId).toList());
+        service.retireCar(single.getCarId());
+        service.cancelReservation(single.getId());
+
+        List<ReservationEvent> events = new ArrayList<>();
+        assertEquals(7, subscription.poll(events::add, 100));
+        assertEquals(List.of(ReservationEvent.Kind.RESERVED, ReservationEvent.Kind.RESERVED,
+                ReservationEvent.Kind.RESERVED, ReservationEvent.Kind.CANCELLED, ReservationEvent.Kind.CANCELLED,
+                ReservationEvent.Kind.REASSIGNED, ReservationEvent.Kind.CANCELLED),
+                events.stream().map(ReservationEvent::getKind).toList());
+        assertEquals(single, events.get(0).getReservation());
+        assertEquals(batch, List.of(events.get(1).getReservation(), events.get(2).getReservation()));
+        assertEquals("1", events.get(5).getReservation().getCarId());
+        assertEquals("1", events.get(6).getReservation().getCarId());
+    }
+
+    private static void runConcurrently(int threads, Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    ready.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            ready.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.carrental.service;
+
+import com.example.carrental.domain.CarType;
+import com.example.carrental.domain.IdGenerator;
+import com.example.carrental.domain.Reservation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares ReservationStore with the CopyOnWriteArrayList it replaced,
+ * under a mix of writes (add then remove by id) and snapshot reads.
+ * Lives in the service package because ReservationStore is package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationStoreBenchmark {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @Param({ "1000", "100000" })
+    public int liveReservations;
+
+    // out of every 100 operations, how many are writes
+    @Param({ "1", "10", "50", "90" })
+    public int writePercent;
+
+    private final IdGenerator ids = new IdGenerator(0);
+    private ReservationStore store;
+    private List<Reservation> list;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new ReservationStore();
+        list = new CopyOnWriteArrayList<>();
+        List<Reservation> initial = new ArrayList<>(liveReservations);
+        for (int i = 0; i < liveReservations; i++) {
+            initial.add(newReservation());
+        }
+        initial.forEach(store::add);
+        list.addAll(initial);
+    }
+
+    private Reservation newReservation() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new Reservation(ids.next(), random.nextInt(1000), CarType.SEDAN,
+                BASE.plusHours(random.nextInt(365 * 24)), 1);
+    }
+
+    @Benchmark
+    public int reservationStore() {
+        if (ThreadLocalRandom.current().nextInt(100) < writePercent) {
+            Reservation reservation = newReservation();
+            store.add(reservation);
+            return store.remove(reservation.getNumericId()) != null ? 1 : 0;
+        }
+        return store.snapshot().size();
+    }
+
+    @Benchmark
+    public int copyOnWriteArrayList() {
+        if (ThreadLocalRandom.current().nextInt(100) < writePercent) {
+            Reservation reservation = newReservation();
+            list.add(reservation);
+            long id = reservation.getNumericId();
+            return list.removeIf(r -> r.getNumericId() == id) ? 1 : 0;
+        }
+        return new ArrayList<>(list).size();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.carrental.shard;
+
+import com.example.carrental.domain.CarType;
+import com.example.carrental.domain.Reservation;
+import com.example.carrental.exception.NoAvailableCarException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the sharding router splits the fleet, routes by id and
+ * combines cross-shard answers like a single service would.
+ */
+class ShardedCarRentalServiceTest {
+
+    private ShardedCarRentalService sharded;
+    private LocalDateTime baseTime;
+
+    @BeforeEach
+    void setUp() {
+        sharded = new ShardedCarRentalService(Map.of(
+                CarType.SEDAN, 10,
+                CarType.SUV, 3,
+                CarType.VAN, 1), 4);
+        baseTime = LocalDateTime.of(2026, 3, 1, 10, 0);
+    }
+
+    @Test
+    void fleetIsSplitAcrossShards() {
+        assertEquals(4, sharded.getShardCount());
+        assertEquals(10, sharded.getTotalCarsCount(CarType.SEDAN));
+        assertEquals(3, sharded.getTotalCarsCount(CarType.SUV));
+        assertEquals(1, sharded.getTotalCarsCount(CarType.VAN));
+        assertEquals(List.of(3, 3, 2, 2), sharded.getTotalCarsCountPerShard(CarType.SEDAN));
+    }
+
+    @Test
+    void bookingsFallThroughShardsUntilFleetIsFull() {
+        Set<String> cars = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            cars.add(sharded.reserveCar(CarType.SEDAN, baseTime, 2).getCarId());
+        }
+
+        assertEquals(10, cars.size(), "every sedan booked once, with unique car IDs");
+        assertEquals(0, sharded.getAvailableCarsCount(CarType.SEDAN, baseTime, 2));
+        assertThrows(NoAvailableCarException.class, () -> sharded.reserveCar(CarType.SEDAN, baseTime, 1));
+        assertEquals(10, sharded.getAvailableCarsCount(CarType.SEDAN, baseTime.plusDays(2), 1));
+    }
+
+    @Test
+    void idBasedCallsRouteToOwningShard() {
+        Reservation van = sharded.reserveCar(CarType.VAN, baseTime, 1);
+        Reservation suv = sharded.reserveCar(CarType.SUV, baseTime.plusDays(1), 1);
+
+        assertEquals(van, sharded.getReservation(van.getId()).orElseThrow());
+        assertEquals(List.of(suv), sharded.getCarReservations(suv.getCarId()));
+        assertEquals(List.of(van, suv), sharded.getAllReservations());
+
+        assertTrue(sharded.cancelReservation(van.getId()));
+        assertFalse(sharded.cancelReservation(van.getId()));
+        assertFalse(sharded.cancelReservation("not-an-id"));
+        assertEquals(1, sharded.getAvailableCarsCount(CarType.VAN, baseTime, 1));
+        assertEquals(List.of(), sharded.getCarReservations("999"));
+    }
+
+    @Test
+    void concurrentBookingsNeverExceedFleet() {
+        long booked = IntStream.range(0, 100).parallel()
+                .filter(i -> sharded.reserveCarOptional(CarType.SEDAN, baseTime, 1).isPresent())
+                .count();
+
+        assertEquals(10, booked);
+        assertEquals(10, sharded.getAllReservations().size());
+    }
+
+    @Test
+    void rejectsInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardedCarRentalService(Map.of(), 0));
+        assertThrows(IllegalArgumentException.class, () -> new ShardedCarRentalService(Map.of(), 1025));
+        assertThrows(IllegalArgumentException.class, () -> sharded.reserveCar(null, baseTime, 1));
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.carrental.web;
+
+import com.example.carrental.domain.CarType;
+import com.example.carrental.domain.Reservation;
+import com.example.carrental.service.CarRentalService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the HTTP API end to end through the controller, the exception
+ * handler and the admission filter, against a real in-memory service.
+ */
+class CarRentalControllerTest {
+
+    private CarRentalService service;
+    private AdmissionFilter admission;
+    private MockMvc mvc;
+    private LocalDateTime baseTime;
+
+    @BeforeEach
+    void setUp() {
+        service = new CarRentalService(Map.of(
+                CarType.SEDAN, 2,
+                CarType.SUV, 1));
+        admission = new AdmissionFilter(1, Duration.ZERO);
+        mvc = MockMvcBuilders.standaloneSetup(new CarRentalController(service))
+                .setControllerAdvice(new ApiExceptionHandler())
+                .addFilters(admission)
+                .build();
+        baseTime = LocalDateTime.of(2026, 3, 1, 10, 0);
+    }
+
+    @Test
+    void reservesLooksUpAndCancels() throws Exception {
+        mvc.perform(post("/api/reservations").contentType(MediaType.APPLICATION_JSON)
+                        .content(body("SUV", baseTime, 2)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.carType").value("SUV"))
+                .andExpect(jsonPath("$.numberOfDays").value(2));
+        Reservation reservation = service.getAllReservations().get(0);
+
+        mvc.perform(get("/api/reservations/{id}", reservation.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(reservation.getId()))
+                .andExpect(jsonPath("$.carId").value(reservation.getCarId()));
+        mvc.perform(get("/api/cars/{carId}/reservations", reservation.getCarId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(reservation.getId()));
+        mvc.perform(get("/api/reservations").param("type", "SUV"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reservations[0].id").value(reservation.getId()));
+
+        mvc.perform(delete("/api/reservations/{id}", reservation.getId()))
+                .andExpect(status().isNoContent());
+        assertTrue(service.getAllReservations().isEmpty());
+    }
+
+    @Test
+    void reportsAvailability() throws Exception {
+        service.reserveCar(CarType.SEDAN, baseTime, 3);
+
+        mvc.perform(get("/api/availability")
+                        .param("type", "SEDAN")
+                        .param("start", baseTime.toString())
+                        .param("days", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.available").value(1))
+                .andExpect(jsonPath("$.total").value(2));
+    }
+
+    @Test
+    void soldOutWindowIs409() throws Exception {
+        service.reserveCar(CarType.SUV, baseTime, 3);
+
+        mvc.perform(post("/api/reservations").contentType(MediaType.APPLICATION_JSON)
+                        .content(body("SUV", baseTime.plusDays(1), 1)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void invalidInputIs400() throws Exception {
+        mvc.perform(post("/api/reservations").contentType(MediaType.APPLICATION_JSON)
+                        .content(body("SEDAN", baseTime, 0)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("Number of days must be greater than 0"));
+        mvc.perform(post("/api/reservations").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"carType\":\"SEDAN\",\"numberOfDays\":1}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("Start time cannot be null"));
+        // a missing start must not reach the service as a null and fail with 500
+        mvc.perform(get("/api/availability").param("type", "SEDAN").param("days", "1"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/availability")
+                        .param("type", "SEDAN")
+                        .param("start", baseTime.toString())
+                        .param("days", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("Number of days must be greater than 0"));
+        mvc.perform(get("/api/availability")
+                        .param("type", "BUS")
+                        .param("start", baseTime.toString())
+                        .param("days", "1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void unknownReservationIs404() throws Exception {
+        mvc.perform(get("/api/reservations/{id}", "12345"))
+                .andExpect(status().isNotFound());
+        mvc.perform(delete("/api/reservations/{id}", "not-an-id"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void requestsBeyondAdmissionAre429() throws Exception {
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // hold the only slot with a request parked in the chain
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> {
+            try {
+                admission.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), (request, response) -> {
+                    inside.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(inside.await(5, TimeUnit.SECONDS));
+
+        mvc.perform(get("/api/reservations/{id}", "12345"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"));
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        mvc.perform(get("/api/reservations/{id}", "12345"))
+                .andExpect(status().isNotFound());
+    }
+
+    private static String body(String carType, LocalDateTime start, int days) {
+        return "{\"carType\":\"" + carType + "\",\"start\":\"" + start + "\",\"numberOfDays\":" + days + "}";
+    }
+}